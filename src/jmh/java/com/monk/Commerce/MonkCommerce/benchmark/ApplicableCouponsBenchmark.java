@@ -0,0 +1,71 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
+import com.monk.Commerce.MonkCommerce.dto.CartRequestDTO;
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.Product;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import com.monk.Commerce.MonkCommerce.service.CouponService;
+import com.monk.Commerce.MonkCommerce.service.batch.BatchEvaluator;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end getApplicableCoupons over a synthetic catalog, wired as Spring wires it minus the database (metrics stay on)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ApplicableCouponsBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int couponCount;
+
+    @Param({"1", "20", "500"})
+    private int cartLines;
+
+    @Param({"CART_HEAVY", "PRODUCT_HEAVY", "BALANCED"})
+    private TypeMix mix;
+
+    private CouponService couponService;
+    private BatchEvaluator batchEvaluator;
+    private CartRequestDTO cartRequest;
+
+    @Setup
+    public void setUp() {
+        List<Coupon> coupons = SyntheticData.coupons(couponCount, mix);
+        List<Product> products = SyntheticData.products();
+
+        CouponRepository couponRepository = SyntheticData.stub(CouponRepository.class,
+                Map.of("findAll", args -> coupons));
+        ProductRepository productRepository = SyntheticData.stub(ProductRepository.class,
+                Map.of("findAllById", args -> ((Collection<?>) args[0]).stream()
+                        .map(id -> products.get((int) ((Long) id - 1)))
+                        .toList()));
+
+        CouponCatalog catalog = new CouponCatalog(couponRepository, Clock.systemDefaultZone());
+        catalog.reload();
+        batchEvaluator = new BatchEvaluator(1, 1);
+        couponService = CouponServiceFixture.couponService(couponRepository, productRepository, catalog,
+                batchEvaluator);
+        cartRequest = SyntheticData.cartRequest(cartLines);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batchEvaluator.shutdown();
+    }
+
+    @Benchmark
+    public List<ApplicableCouponDTO> getApplicableCoupons() {
+        return couponService.getApplicableCoupons(cartRequest);
+    }
+}
@@ -0,0 +1,37 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// One short in-process iteration of every benchmark on its smallest parameters, run by mvn -Pbenchmark test,
+// so a broken fixture fails the build rather than the next real benchmark run
+class BenchmarkSmokeTest {
+
+    @Test
+    void everyBenchmarkRunsOnce() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BenchmarkSmokeTest.class.getPackageName() + ".")
+                .forks(0)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(100))
+                .param("couponCount", "100")
+                .param("cartLines", "20")
+                .param("mix", "BALANCED")
+                .shouldFailOnError(true)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        assertFalse(results.isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monk.Commerce.MonkCommerce.repository.CartRepository;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import com.monk.Commerce.MonkCommerce.repository.RedemptionCounterRepository;
+import com.monk.Commerce.MonkCommerce.service.CouponService;
+import com.monk.Commerce.MonkCommerce.service.batch.BatchEvaluator;
+import com.monk.Commerce.MonkCommerce.service.bulk.CouponImporter;
+import com.monk.Commerce.MonkCommerce.service.cache.ApplicableCouponsCache;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCache;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import com.monk.Commerce.MonkCommerce.service.metrics.CouponMetrics;
+import com.monk.Commerce.MonkCommerce.service.persistence.CartPersistence;
+import com.monk.Commerce.MonkCommerce.service.persistence.CouponPageReader;
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLedger;
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLimits;
+import com.monk.Commerce.MonkCommerce.service.session.CartSessions;
+import com.monk.Commerce.MonkCommerce.service.stacking.CouponStackOptimizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+/*
+ * CouponService with every collaborator the application gives it, none left null: in-memory repositories, a
+ * transaction manager that does nothing, and the JDBC-backed change log and redemption ledger without a data
+ * source. Read paths run exactly as in production; a benchmark that strays onto a write path fails loudly.
+ */
+final class CouponServiceFixture {
+
+    private CouponServiceFixture() {
+    }
+
+    static CouponService couponService(CouponRepository couponRepository,
+                                       ProductRepository productRepository,
+                                       CouponCatalog catalog,
+                                       BatchEvaluator batchEvaluator) {
+        Clock clock = Clock.systemDefaultZone();
+        PlatformTransactionManager transactionManager = transactionManager();
+        CouponMetrics metrics = new CouponMetrics(new SimpleMeterRegistry());
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        EntityManager entityManager = SyntheticData.stub(EntityManager.class, Map.of());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate();
+        CatalogChangeLog changeLog = new CatalogChangeLog(jdbcTemplate, transactionManager, clock);
+        CartRepository cartRepository = SyntheticData.stub(CartRepository.class, Map.of(
+                "saveAndFlush", args -> args[0],
+                "saveAll", args -> args[0]));
+        RedemptionLedger ledger = new RedemptionLedger(
+                SyntheticData.stub(RedemptionCounterRepository.class, Map.of()), jdbcTemplate, transactionManager);
+
+        return new CouponService(
+                couponRepository,
+                catalog,
+                new ProductCache(productRepository, SyntheticData.PRODUCT_COUNT),
+                new CouponStackOptimizer(10, Duration.ofSeconds(1)),
+                batchEvaluator,
+                metrics,
+                new CartPersistence(cartRepository, couponRepository, transactionManager, metrics,
+                        CartPersistence.Durability.SYNC, 1, 1),
+                new CouponImporter(couponRepository, productRepository, catalog, changeLog, entityManager,
+                        transactionManager, objectMapper, 500),
+                new CouponPageReader(couponRepository, entityManager, transactionManager),
+                objectMapper,
+                new CartSessions(catalog, metrics, Duration.ofMinutes(30), 100_000),
+                new ApplicableCouponsCache(10_000),
+                new RedemptionLimits(ledger, 100),
+                changeLog);
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        return SyntheticData.stub(PlatformTransactionManager.class, Map.of(
+                "getTransaction", args -> new SimpleTransactionStatus(),
+                "commit", args -> null,
+                "rollback", args -> null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import com.monk.Commerce.MonkCommerce.model.Cart;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.strategy.BxGyStrategy;
+import com.monk.Commerce.MonkCommerce.service.strategy.CartWiseStrategy;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+import com.monk.Commerce.MonkCommerce.service.strategy.ProductWiseStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Single-coupon evaluation cost per strategy and per compiled evaluator; coupons reference products that are in the cart so every path does full work
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBenchmark {
+
+    @Param({"1", "20", "500"})
+    private int cartLines;
+
+    private final CartWiseStrategy cartWiseStrategy = new CartWiseStrategy();
+    private final ProductWiseStrategy productWiseStrategy = new ProductWiseStrategy();
+    private final BxGyStrategy bxGyStrategy = new BxGyStrategy();
+
+    private PricedCart cart;
+    private CouponSnapshot cartWiseCoupon;
+    private CouponSnapshot productWiseCoupon;
+    private CouponSnapshot bxGyCoupon;
+
+    @Setup
+    public void setUp() {
+        Cart entity = SyntheticData.cart(SyntheticData.cartRequest(cartLines), SyntheticData.products());
+        cart = PricedCart.of(entity);
+        List<Long> inCart = entity.getItems().stream()
+                .map(item -> item.getProduct().getId())
+                .toList();
+
+        Random random = new Random(7L);
+        cartWiseCoupon = CouponSnapshot.from(SyntheticData.coupon(1L, CouponType.CART_WISE, random));
+
+        var productWise = SyntheticData.coupon(2L, CouponType.PRODUCT_WISE, random);
+        productWise.setApplicableProductIds(inCart.subList(0, Math.min(5, inCart.size())));
+        productWiseCoupon = CouponSnapshot.from(productWise);
+
+        var bxGy = SyntheticData.coupon(3L, CouponType.BXGY, random);
+        bxGy.setBuyQuantity(1);
+        bxGy.setBuyProductIds(inCart.subList(0, Math.min(2, inCart.size())));
+        bxGy.setFreeProductIds(List.of(inCart.get(inCart.size() - 1)));
+        bxGyCoupon = CouponSnapshot.from(bxGy);
+    }
+
+    @Benchmark
+    public DiscountPlan cartWise() {
+        return cartWiseStrategy.evaluate(cartWiseCoupon, cart);
+    }
+
+    @Benchmark
+    public DiscountPlan productWise() {
+        return productWiseStrategy.evaluate(productWiseCoupon, cart);
+    }
+
+    @Benchmark
+    public DiscountPlan bxGy() {
+        return bxGyStrategy.evaluate(bxGyCoupon, cart);
+    }
+
+    @Benchmark
+    public DiscountPlan cartWiseCompiled() {
+        return cartWiseCoupon.getEvaluator().evaluate(cart);
+    }
+
+    @Benchmark
+    public DiscountPlan productWiseCompiled() {
+        return productWiseCoupon.getEvaluator().evaluate(cart);
+    }
+
+    @Benchmark
+    public DiscountPlan bxGyCompiled() {
+        return bxGyCoupon.getEvaluator().evaluate(cart);
+    }
+}
@@ -0,0 +1,130 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import com.monk.Commerce.MonkCommerce.dto.CartItemDTO;
+import com.monk.Commerce.MonkCommerce.dto.CartRequestDTO;
+import com.monk.Commerce.MonkCommerce.model.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+// Deterministic catalogs and carts for the benchmarks; a fixed seed keeps runs comparable across engine changes
+final class SyntheticData {
+
+    static final int PRODUCT_COUNT = 10_000;
+    private static final long SEED = 42L;
+
+    private SyntheticData() {
+    }
+
+    static List<Product> products() {
+        Random random = new Random(SEED);
+        List<Product> products = new ArrayList<>(PRODUCT_COUNT);
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setPrice(1.0 + random.nextInt(200));
+            products.add(product);
+        }
+        return products;
+    }
+
+    static List<Coupon> coupons(int count, TypeMix mix) {
+        Random random = new Random(SEED);
+        List<Coupon> coupons = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            coupons.add(coupon(id, mix.pick(random), random));
+        }
+        return coupons;
+    }
+
+    static Coupon coupon(long id, CouponType type, Random random) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName("BENCH" + id);
+        coupon.setType(type);
+        coupon.setIsActive(true);
+        coupon.setStartDate(LocalDateTime.now().minusDays(1));
+        coupon.setEndDate(LocalDateTime.now().plusYears(1));
+        switch (type) {
+            case CART_WISE -> {
+                coupon.setDiscountType(random.nextBoolean() ? DiscountType.PERCENTAGE : DiscountType.FIXED_AMOUNT);
+                coupon.setDiscountValue(5.0 + random.nextInt(20));
+                coupon.setMinimumCartTotal((double) random.nextInt(2_000));
+            }
+            case PRODUCT_WISE -> {
+                coupon.setDiscountType(DiscountType.PERCENTAGE);
+                coupon.setDiscountValue(5.0 + random.nextInt(30));
+                coupon.setApplicableProductIds(randomProductIds(random, 1 + random.nextInt(5)));
+            }
+            case BXGY -> {
+                coupon.setDiscountType(DiscountType.PERCENTAGE);
+                coupon.setDiscountValue(100.0);
+                coupon.setBuyQuantity(1 + random.nextInt(3));
+                coupon.setGetQuantity(1);
+                coupon.setBuyProductIds(randomProductIds(random, 2));
+                coupon.setFreeProductIds(randomProductIds(random, 1));
+                coupon.setMaxRepetitions(1 + random.nextInt(3));
+            }
+        }
+        return coupon;
+    }
+
+    static CartRequestDTO cartRequest(int lines) {
+        Random random = new Random(SEED + lines);
+        List<CartItemDTO> items = new ArrayList<>(lines);
+        for (Long productId : randomProductIds(random, lines)) {
+            items.add(new CartItemDTO(productId, 1 + random.nextInt(5), null));
+        }
+        return new CartRequestDTO(items);
+    }
+
+    static Cart cart(CartRequestDTO request, List<Product> products) {
+        Cart cart = new Cart();
+        double total = 0.0;
+        for (CartItemDTO dto : request.getItems()) {
+            Product product = products.get((int) (dto.getProductId() - 1));
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(dto.getQuantity());
+            item.setOriginalPrice(product.getPrice());
+            item.setCart(cart);
+            cart.getItems().add(item);
+            total += product.getPrice() * dto.getQuantity();
+        }
+        cart.setTotalAmount(total);
+        return cart;
+    }
+
+    // Minimal in-memory implementation of a repository or other interface: only the named methods are backed,
+    // anything else fails loudly
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Synthetic" + type.getSimpleName();
+                default:
+                    Function<Object[], Object> handler = methods.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return handler.apply(args);
+            }
+        });
+    }
+
+    private static List<Long> randomProductIds(Random random, int count) {
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < Math.min(count, PRODUCT_COUNT)) {
+            ids.add(1L + random.nextInt(PRODUCT_COUNT));
+        }
+        return new ArrayList<>(ids);
+    }
+}
@@ -0,0 +1,28 @@
+package com.monk.Commerce.MonkCommerce.benchmark;
+
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+
+import java.util.Random;
+
+// Share of each coupon type in a synthetic catalog; the remainder after cart-wise and product-wise is BxGy
+public enum TypeMix {
+    CART_HEAVY(0.8, 0.1),
+    PRODUCT_HEAVY(0.1, 0.8),
+    BALANCED(0.34, 0.33);
+
+    private final double cartWiseShare;
+    private final double productWiseShare;
+
+    TypeMix(double cartWiseShare, double productWiseShare) {
+        this.cartWiseShare = cartWiseShare;
+        this.productWiseShare = productWiseShare;
+    }
+
+    CouponType pick(Random random) {
+        double roll = random.nextDouble();
+        if (roll < cartWiseShare) {
+            return CouponType.CART_WISE;
+        }
+        return roll < cartWiseShare + productWiseShare ? CouponType.PRODUCT_WISE : CouponType.BXGY;
+    }
+}
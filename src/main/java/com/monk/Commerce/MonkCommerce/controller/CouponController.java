@@ -2,11 +2,16 @@ package com.monk.Commerce.MonkCommerce.controller;
 
 import com.monk.Commerce.MonkCommerce.dto.*;
 import com.monk.Commerce.MonkCommerce.service.CouponService;
+import com.monk.Commerce.MonkCommerce.service.bulk.ImportFormat;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -21,10 +26,32 @@ public class CouponController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    // Body is read as a stream: one coupon per NDJSON line, or CSV with a header row
+    @PostMapping(value = "/coupons/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ImportFormat.CSV_MEDIA_TYPE})
+    public ResponseEntity<CouponImportReportDTO> importCoupons(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        CouponImportReportDTO report = couponService.importCoupons(body, ImportFormat.of(MediaType.parseMediaType(contentType)));
+        return ResponseEntity.ok(report);
+    }
+
+    // Without limit the whole (filtered) list is streamed as a JSON array while it is read
     @GetMapping("/coupons")
-    public ResponseEntity<List<CouponResponseDTO>> getAllCoupons() {
-        List<CouponResponseDTO> coupons = couponService.getAllCoupons();
-        return ResponseEntity.ok(coupons);
+    public ResponseEntity<StreamingResponseBody> getAllCoupons(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean active) {
+        StreamingResponseBody coupons = couponService.streamCoupons(type, active);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(coupons);
+    }
+
+    @GetMapping(value = "/coupons", params = "limit")
+    public ResponseEntity<CouponPageDTO> getCouponPage(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) Long after,
+            @RequestParam int limit) {
+        CouponPageDTO page = couponService.getCouponPage(type, active, after, limit);
+        return ResponseEntity.ok(page);
     }
 
     @GetMapping("/coupons/{id}")
@@ -53,11 +80,85 @@ public class CouponController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/applicable-coupons/batch")
+    public ResponseEntity<List<ApplicableCouponsResponseDTO>> getApplicableCouponsBatch(
+            @RequestBody List<CartRequestFormatDTO> cartRequests) {
+        List<ApplicableCouponsResponseDTO> response = couponService.getApplicableCouponsBatchFromFormat(cartRequests);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/best-coupons")
+    public ResponseEntity<ApplicableCouponsResponseDTO> getBestCoupons(
+            @RequestParam(defaultValue = "1") int k,
+            @RequestBody CartRequestFormatDTO cartRequest) {
+        ApplicableCouponsResponseDTO response = couponService.getBestCouponsFromFormat(cartRequest, k);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/best-coupon-stack")
+    public ResponseEntity<StackedCouponsResponseDTO> getBestCouponStack(@RequestBody StackRequestFormatDTO request) {
+        StackedCouponsResponseDTO response = couponService.getBestStackFromFormat(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/cart-sessions")
+    public ResponseEntity<CartSessionResponseDTO> createCartSession() {
+        CartSessionResponseDTO response = couponService.createCartSession();
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/cart-sessions/{sessionId}")
+    public ResponseEntity<CartSessionResponseDTO> getCartSession(@PathVariable String sessionId) {
+        CartSessionResponseDTO response = couponService.getCartSession(sessionId);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/cart-sessions/{sessionId}")
+    public ResponseEntity<Void> deleteCartSession(@PathVariable String sessionId) {
+        couponService.deleteCartSession(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/cart-sessions/{sessionId}/items")
+    public ResponseEntity<CartSessionResponseDTO> addCartSessionItem(
+            @PathVariable String sessionId,
+            @RequestBody CartItemFormatDTO item) {
+        CartSessionResponseDTO response = couponService.addCartSessionItem(sessionId, item);
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/cart-sessions/{sessionId}/items/{productId}")
+    public ResponseEntity<CartSessionResponseDTO> updateCartSessionItem(
+            @PathVariable String sessionId,
+            @PathVariable Long productId,
+            @RequestBody CartItemFormatDTO item) {
+        CartSessionResponseDTO response = couponService.updateCartSessionItem(sessionId, productId, item);
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/cart-sessions/{sessionId}/items/{productId}")
+    public ResponseEntity<CartSessionResponseDTO> removeCartSessionItem(
+            @PathVariable String sessionId,
+            @PathVariable Long productId) {
+        CartSessionResponseDTO response = couponService.removeCartSessionItem(sessionId, productId);
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/apply-coupon/{id}")
     public ResponseEntity<ApplyCouponResponseDTO> applyCoupon(
             @PathVariable Long id,
+            @RequestHeader(value = "X-Customer-Id", required = false) String customerId,
+            @RequestBody CartRequestFormatDTO cartRequest) {
+        ApplyCouponResponseDTO response = couponService.applyCouponFromFormat(id, cartRequest, customerId);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/apply-coupon/code/{code}")
+    public ResponseEntity<ApplyCouponResponseDTO> applyCouponByCode(
+            @PathVariable String code,
+            @RequestHeader(value = "X-Customer-Id", required = false) String customerId,
             @RequestBody CartRequestFormatDTO cartRequest) {
-        ApplyCouponResponseDTO response = couponService.applyCouponFromFormat(id, cartRequest);
+        ApplyCouponResponseDTO response = couponService.applyCouponByCodeFromFormat(code, cartRequest, customerId);
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,17 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSessionResponseDTO {
+    private String session_id;
+    private List<CartItemFormatDTO> items;
+    private Double total;
+    private List<ApplicableCouponFormatDTO> applicable_coupons;
+}
@@ -23,6 +23,10 @@ public class CouponDetailsDTO {
     private List<GetProductDTO> get_products;
     private Integer repition_limit;
     
+    // Redemption caps, any type
+    private Integer max_redemptions;
+    private Integer max_redemptions_per_customer;
+    
     // Expiration dates
     private LocalDateTime start_date;
     private LocalDateTime end_date;
@@ -0,0 +1,16 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponImportReportDTO {
+    private Integer imported;
+    private Integer failed;
+    private List<ImportErrorDTO> errors; // first errors only, see failed for the full count
+}
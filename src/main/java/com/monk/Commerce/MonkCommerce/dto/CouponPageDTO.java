@@ -0,0 +1,15 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponPageDTO {
+    private List<CouponResponseDTO> coupons;
+    private Long next_cursor; // pass as ?after= for the next page, null on the last page
+}
@@ -14,6 +14,7 @@ import java.util.List;
 @AllArgsConstructor
 public class CouponRequestDTO {
     private String name;
+    private String code;
     private CouponType type;
     private DiscountType discountType;
     private Double discountValue;
@@ -24,6 +25,8 @@ public class CouponRequestDTO {
     private List<Long> buyProductIds;
     private List<Long> freeProductIds;
     private Integer maxRepetitions;
+    private Integer maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
     private Boolean isActive;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
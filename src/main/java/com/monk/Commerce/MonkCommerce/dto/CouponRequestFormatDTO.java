@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class CouponRequestFormatDTO {
     private String type; // "cart-wise", "product-wise", "bxgy"
+    private String code; // optional redemption code, case-insensitive
     private CouponDetailsDTO details;
 }
 
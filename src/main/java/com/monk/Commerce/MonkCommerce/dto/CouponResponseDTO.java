@@ -15,6 +15,7 @@ import java.util.List;
 public class CouponResponseDTO {
     private Long id;
     private String name;
+    private String code;
     private CouponType type;
     private DiscountType discountType;
     private Double discountValue;
@@ -25,6 +26,8 @@ public class CouponResponseDTO {
     private List<Long> buyProductIds;
     private List<Long> freeProductIds;
     private Integer maxRepetitions;
+    private Integer maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
     private Boolean isActive;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
@@ -0,0 +1,13 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportErrorDTO {
+    private Integer line;
+    private String message;
+}
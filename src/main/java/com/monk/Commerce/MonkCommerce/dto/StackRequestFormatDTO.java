@@ -0,0 +1,17 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StackRequestFormatDTO {
+    private CartFormatDTO cart;
+    private List<String> stackable_types; // "cart-wise", "product-wise", "bxgy"
+    private Integer max_coupons;
+    private Long time_budget_ms;
+}
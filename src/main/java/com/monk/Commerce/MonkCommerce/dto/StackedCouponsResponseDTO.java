@@ -0,0 +1,16 @@
+package com.monk.Commerce.MonkCommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StackedCouponsResponseDTO {
+    private List<ApplicableCouponFormatDTO> coupons;
+    private Double total_discount;
+    private Boolean complete;
+}
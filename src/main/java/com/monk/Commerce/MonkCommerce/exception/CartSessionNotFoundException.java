@@ -0,0 +1,7 @@
+package com.monk.Commerce.MonkCommerce.exception;
+
+public class CartSessionNotFoundException extends RuntimeException {
+    public CartSessionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,37 @@
+package com.monk.Commerce.MonkCommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One committed coupon or product mutation; versions are contiguous and become visible in order
+@Entity
+@Table(name = "catalog_changes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChange {
+    @Id
+    private Long version;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ChangedEntity entityType;
+
+    @Column(nullable = false)
+    private Long entityId;
+
+    // Tombstone: the entity was deleted at this version
+    @Column(nullable = false)
+    private Boolean deleted;
+
+    // Node that made the change; it applied the change locally when it committed
+    @Column(nullable = false)
+    private String origin;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+}
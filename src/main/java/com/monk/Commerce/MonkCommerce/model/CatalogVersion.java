@@ -0,0 +1,23 @@
+package com.monk.Commerce.MonkCommerce.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Single-row counter handing out change-log versions; see CatalogChangeLog
+@Entity
+@Table(name = "catalog_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,6 @@
+package com.monk.Commerce.MonkCommerce.model;
+
+public enum ChangedEntity {
+    COUPON,
+    PRODUCT
+}
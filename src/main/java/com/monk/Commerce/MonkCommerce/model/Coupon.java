@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,12 +17,17 @@ import java.util.List;
 @AllArgsConstructor
 public class Coupon {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_seq")
+    @SequenceGenerator(name = "coupon_seq", sequenceName = "coupon_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
+    // Redemption code customers type in, stored normalized (see CouponCode); optional
+    @Column(unique = true, length = 32)
+    private String code;
+
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private CouponType type;
@@ -36,7 +43,9 @@ public class Coupon {
     private Double minimumCartTotal;
 
     // For PRODUCT_WISE: list of product IDs this coupon applies to
+    // SUBSELECT: loading many coupons fetches each ID list for all of them in one query instead of one per coupon
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(name = "coupon_applicable_products", joinColumns = @JoinColumn(name = "coupon_id"))
     @Column(name = "product_id")
     private List<Long> applicableProductIds;
@@ -49,12 +58,14 @@ public class Coupon {
 
     // For BXGY: products to buy (can be multiple)
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(name = "coupon_buy_products", joinColumns = @JoinColumn(name = "coupon_id"))
     @Column(name = "product_id")
     private List<Long> buyProductIds;
 
     // For BXGY: products to get free (can be multiple)
     @ElementCollection
+    @Fetch(FetchMode.SUBSELECT)
     @CollectionTable(name = "coupon_free_products", joinColumns = @JoinColumn(name = "coupon_id"))
     @Column(name = "product_id")
     private List<Long> freeProductIds;
@@ -62,6 +73,10 @@ public class Coupon {
     // For BXGY: maximum number of times this deal can be applied
     private Integer maxRepetitions;
 
+    // Redemption caps: across all customers, and per customer; null means unlimited
+    private Integer maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
+
     @Column(nullable = false)
     private Boolean isActive = true;
 
@@ -0,0 +1,38 @@
+package com.monk.Commerce.MonkCommerce.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// How many times one customer has redeemed one coupon
+@Entity
+@Table(name = "coupon_customer_redemptions")
+@IdClass(CustomerRedemption.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerRedemption {
+    @Id
+    private Long couponId;
+
+    @Id
+    private String customerId;
+
+    @Column(nullable = false)
+    private Integer redemptions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long couponId;
+        private String customerId;
+    }
+}
@@ -1,5 +1,6 @@
 package com.monk.Commerce.MonkCommerce.model;
 
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "products")
+@EntityListeners(ProductCacheInvalidator.class)
 @Data
 @NoArgsConstructor
 public class Product {
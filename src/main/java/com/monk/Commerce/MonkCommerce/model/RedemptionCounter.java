@@ -0,0 +1,23 @@
+package com.monk.Commerce.MonkCommerce.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Redemption tokens handed out for a capped coupon across all nodes; only ever grows, and never past the cap
+@Entity
+@Table(name = "coupon_redemption_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedemptionCounter {
+    @Id
+    private Long couponId;
+
+    @Column(nullable = false)
+    private Long reserved;
+}
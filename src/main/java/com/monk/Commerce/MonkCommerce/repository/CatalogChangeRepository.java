@@ -0,0 +1,22 @@
+package com.monk.Commerce.MonkCommerce.repository;
+
+import com.monk.Commerce.MonkCommerce.model.CatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+
+    List<CatalogChange> findByVersionGreaterThanOrderByVersion(long version, Limit limit);
+
+    @Modifying
+    @Query("delete from CatalogChange c where c.changedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
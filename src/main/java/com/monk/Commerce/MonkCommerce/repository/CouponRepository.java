@@ -1,10 +1,40 @@
 package com.monk.Commerce.MonkCommerce.repository;
 
 import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
+
+    // Keyset page: seeks past the last seen id on the primary key index instead of counting skipped rows
+    @Query("select c.id from Coupon c where c.id > :after"
+            + " and (:type is null or c.type = :type)"
+            + " and (:active is null or c.isActive = :active)"
+            + " order by c.id")
+    List<Long> findPageIds(@Param("after") long after,
+                           @Param("type") CouponType type,
+                           @Param("active") Boolean active,
+                           Limit limit);
+
+    // Unlimited on purpose: subselect fetching repeats this query without a LIMIT, so the id range bounds it
+    @Query("select c from Coupon c where c.id > :after and c.id <= :last"
+            + " and (:type is null or c.type = :type)"
+            + " and (:active is null or c.isActive = :active)"
+            + " order by c.id")
+    List<Coupon> findRange(@Param("after") long after,
+                           @Param("last") long last,
+                           @Param("type") CouponType type,
+                           @Param("active") Boolean active);
+
+    // Highest coupon id ever kept; with count() it tells a snapshot file of this database from a stale one
+    @Query("select max(c.id) from Coupon c")
+    Long findMaxId();
 }
 
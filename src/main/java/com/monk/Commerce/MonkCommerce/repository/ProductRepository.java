@@ -2,9 +2,21 @@ package com.monk.Commerce.MonkCommerce.repository;
 
 import com.monk.Commerce.MonkCommerce.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductSnapshot;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    @Query("select p.id from Product p")
+    List<Long> findAllIds();
+
+    // Constructor projection: no managed entities, so a full read stays cheap for the catalog snapshot file
+    @Query("select new com.monk.Commerce.MonkCommerce.service.catalog.ProductSnapshot(p.id, p.name, p.price)"
+            + " from Product p")
+    List<ProductSnapshot> findAllSnapshots();
 }
 
@@ -0,0 +1,19 @@
+package com.monk.Commerce.MonkCommerce.repository;
+
+import com.monk.Commerce.MonkCommerce.model.RedemptionCounter;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RedemptionCounterRepository extends JpaRepository<RedemptionCounter, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from RedemptionCounter c where c.couponId = :couponId")
+    Optional<RedemptionCounter> findForUpdate(@Param("couponId") Long couponId);
+}
@@ -1,18 +1,43 @@
 package com.monk.Commerce.MonkCommerce.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.monk.Commerce.MonkCommerce.dto.*;
 import com.monk.Commerce.MonkCommerce.exception.*;
 import com.monk.Commerce.MonkCommerce.model.*;
-import com.monk.Commerce.MonkCommerce.repository.CartRepository;
 import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
-import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
-import com.monk.Commerce.MonkCommerce.service.strategy.CouponDiscountStrategy;
-import com.monk.Commerce.MonkCommerce.service.strategy.CouponStrategyFactory;
+import com.monk.Commerce.MonkCommerce.service.batch.BatchEvaluator;
+import com.monk.Commerce.MonkCommerce.service.cache.ApplicableCouponsCache;
+import com.monk.Commerce.MonkCommerce.service.cache.CartFingerprint;
+import com.monk.Commerce.MonkCommerce.service.bulk.CouponImporter;
+import com.monk.Commerce.MonkCommerce.service.bulk.ImportFormat;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CatalogSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCode;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCache;
+import com.monk.Commerce.MonkCommerce.service.metrics.CouponMetrics;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import com.monk.Commerce.MonkCommerce.service.persistence.CartPersistence;
+import com.monk.Commerce.MonkCommerce.service.persistence.CouponPageReader;
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLimits;
+import com.monk.Commerce.MonkCommerce.service.session.CartSession;
+import com.monk.Commerce.MonkCommerce.service.session.CartSessions;
+import com.monk.Commerce.MonkCommerce.service.stacking.CouponStackOptimizer;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackCandidate;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackResult;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackingPolicy;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,22 +45,78 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CouponService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+
     private final CouponRepository couponRepository;
-    private final ProductRepository productRepository;
-    private final CartRepository cartRepository;
-    private final CouponStrategyFactory strategyFactory;
+    private final CouponCatalog couponCatalog;
+    private final ProductCache productCache;
+    private final CouponStackOptimizer stackOptimizer;
+    private final BatchEvaluator batchEvaluator;
+    private final CouponMetrics metrics;
+    private final CartPersistence cartPersistence;
+    private final CouponImporter couponImporter;
+    private final CouponPageReader couponPageReader;
+    private final ObjectMapper objectMapper;
+    private final CartSessions cartSessions;
+    private final ApplicableCouponsCache applicableCouponsCache;
+    private final RedemptionLimits redemptionLimits;
+    private final CatalogChangeLog changeLog;
 
+    @Transactional
     public CouponResponseDTO createCoupon(CouponRequestDTO request) {
         validateCouponRequest(request);
+        checkCodeAvailable(request.getCode(), null);
         Coupon coupon = mapToEntity(request);
         coupon = couponRepository.save(coupon);
+        couponCatalog.put(coupon, changeLog.recordCoupon(coupon.getId(), false));
         return mapToResponseDTO(coupon);
     }
 
-    public List<CouponResponseDTO> getAllCoupons() {
-        return couponRepository.findAll().stream()
-                .map(this::mapToResponseDTO)
-                .collect(Collectors.toList());
+    // Not transactional: the importer commits in batches so one bad batch does not undo the rest
+    public CouponImportReportDTO importCoupons(InputStream body, ImportFormat format) {
+        return couponImporter.importCoupons(body, format, request -> {
+            validateCouponRequest(request);
+            checkCodeAvailable(request.getCode(), null);
+            return mapToEntity(request);
+        });
+    }
+
+    // Reads limit + 1 rows so the last page is known without a count query
+    public CouponPageDTO getCouponPage(String type, Boolean active, Long after, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<CouponResponseDTO> coupons = couponPageReader.read(parseTypeFilter(type), active,
+                after != null ? after : 0L, limit + 1, this::mapToResponseDTO);
+        if (coupons.size() <= limit) {
+            return new CouponPageDTO(coupons, null);
+        }
+        List<CouponResponseDTO> page = coupons.subList(0, limit);
+        return new CouponPageDTO(page, page.get(limit - 1).getId());
+    }
+
+    // Filters are checked before the body is returned, so a bad type is still a 400 rather than a broken stream
+    public StreamingResponseBody streamCoupons(String type, Boolean active) {
+        CouponType couponType = parseTypeFilter(type);
+        return out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                long after = 0L;
+                List<CouponResponseDTO> page;
+                do {
+                    page = couponPageReader.read(couponType, active, after, STREAM_PAGE_SIZE, this::mapToResponseDTO);
+                    for (CouponResponseDTO coupon : page) {
+                        json.writeObject(coupon);
+                    }
+                    json.flush();
+                    if (!page.isEmpty()) {
+                        after = page.get(page.size() - 1).getId();
+                    }
+                } while (page.size() == STREAM_PAGE_SIZE);
+                json.writeEndArray();
+            }
+        };
     }
 
     public CouponResponseDTO getCouponById(Long id) {
@@ -44,52 +125,147 @@ public class CouponService {
         return mapToResponseDTO(coupon);
     }
 
+    @Transactional
     public CouponResponseDTO updateCoupon(Long id, CouponRequestDTO request) {
         Coupon coupon = couponRepository.findById(id)
                 .orElseThrow(() -> new CouponNotFoundException("Coupon not found with id: " + id));
         validateCouponRequest(request);
+        checkCodeAvailable(request.getCode(), id);
         updateCouponFromDTO(coupon, request);
         coupon = couponRepository.save(coupon);
+        couponCatalog.put(coupon, changeLog.recordCoupon(id, false));
         return mapToResponseDTO(coupon);
     }
 
+    @Transactional
     public void deleteCoupon(Long id) {
         if (!couponRepository.existsById(id)) {
             throw new CouponNotFoundException("Coupon not found with id: " + id);
         }
         couponRepository.deleteById(id);
+        couponCatalog.remove(id, changeLog.recordCoupon(id, true));
     }
 
     public List<ApplicableCouponDTO> getApplicableCoupons(CartRequestDTO cartRequest) {
         Cart cart = buildCartFromRequest(cartRequest);
-        LocalDateTime now = LocalDateTime.now();
-        List<Coupon> allCoupons = couponRepository.findAll().stream()
-                .filter(Coupon::getIsActive)
-                .filter(coupon -> isCouponValid(coupon, now))
+        return findApplicableCoupons(cart, couponCatalog.snapshot(), CouponMetrics.Operation.APPLICABLE);
+    }
+
+    // All carts share one catalog snapshot and one product lookup; results keep the input order
+    public List<List<ApplicableCouponDTO>> getApplicableCouponsBatch(List<CartRequestDTO> cartRequests) {
+        batchEvaluator.checkBatchSize(cartRequests.size());
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+
+        List<Long> productIds = cartRequests.stream()
+                .flatMap(request -> request.getItems().stream())
+                .map(CartItemDTO::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Product> products = resolveProducts(productIds);
+
+        List<Cart> carts = cartRequests.stream()
+                .map(request -> buildCartFromRequest(request, products))
                 .collect(Collectors.toList());
 
+        return batchEvaluator.mapInOrder(carts, cart -> findApplicableCoupons(cart, catalog, CouponMetrics.Operation.BATCH));
+    }
+
+    private List<ApplicableCouponDTO> findApplicableCoupons(Cart cart, CatalogSnapshot catalog,
+                                                            CouponMetrics.Operation operation) {
         List<ApplicableCouponDTO> applicableCoupons = new ArrayList<>();
+        CouponMetrics.Evaluation evaluation = metrics.startEvaluation(operation);
+        PricedCart pricedCart = PricedCart.of(cart);
 
-        for (Coupon coupon : allCoupons) {
-            CouponDiscountStrategy strategy = strategyFactory.getStrategy(coupon.getType());
-            ApplicableCouponDTO applicableCoupon = strategy.checkApplicability(coupon, cart);
-            if (applicableCoupon != null) {
-                applicableCoupons.add(applicableCoupon);
+        for (CouponSnapshot coupon : catalog.candidatesFor(productIdsOf(cart), pricedCart.total())) {
+            DiscountPlan plan = evaluation.evaluate(coupon, pricedCart);
+            if (plan.isApplicable()) {
+                applicableCoupons.add(plan.toApplicableCoupon(coupon));
             }
         }
 
+        evaluation.finish();
         return applicableCoupons;
     }
 
+    // Top-k by discount: candidates are evaluated in descending upper-bound order, stopping once no bound can beat the k-th best
+    public List<ApplicableCouponDTO> getBestCoupons(CartRequestDTO cartRequest, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        Cart cart = buildCartFromRequest(cartRequest);
+        PricedCart pricedCart = PricedCart.of(cart);
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+
+        List<BoundedCandidate> candidates = new ArrayList<>();
+        for (CouponSnapshot coupon : catalog.candidatesFor(productIdsOf(cart), pricedCart.total())) {
+            long bound = coupon.getEvaluator().upperBound(pricedCart);
+            if (bound > 0) {
+                candidates.add(new BoundedCandidate(coupon, bound));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(BoundedCandidate::bound).reversed());
+
+        Comparator<ApplicableCouponDTO> byDiscount = Comparator.comparingDouble(ApplicableCouponDTO::getTotalDiscount);
+        PriorityQueue<ApplicableCouponDTO> best = new PriorityQueue<>(k, byDiscount);
+        CouponMetrics.Evaluation evaluation = metrics.startEvaluation(CouponMetrics.Operation.BEST);
+        for (BoundedCandidate candidate : candidates) {
+            if (best.size() == k && Money.toMajor(candidate.bound()) <= best.peek().getTotalDiscount()) {
+                break;
+            }
+            DiscountPlan plan = evaluation.evaluate(candidate.coupon(), pricedCart);
+            if (!plan.isApplicable()) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(plan.toApplicableCoupon(candidate.coupon()));
+            } else if (plan.getTotalDiscount() > best.peek().getTotalDiscount()) {
+                best.poll();
+                best.add(plan.toApplicableCoupon(candidate.coupon()));
+            }
+        }
+        evaluation.finish();
+
+        List<ApplicableCouponDTO> result = new ArrayList<>(best);
+        result.sort(byDiscount.reversed().thenComparing(ApplicableCouponDTO::getId));
+        return result;
+    }
+
+    public StackResult getBestStack(CartRequestDTO cartRequest, StackingPolicy policy) {
+        Cart cart = buildCartFromRequest(cartRequest);
+        PricedCart pricedCart = PricedCart.of(cart);
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+
+        List<StackCandidate> candidates = new ArrayList<>();
+        CouponMetrics.Evaluation evaluation = metrics.startEvaluation(CouponMetrics.Operation.STACK);
+        for (CouponSnapshot coupon : catalog.candidatesFor(productIdsOf(cart), pricedCart.total())) {
+            DiscountPlan plan = evaluation.evaluate(coupon, pricedCart);
+            if (plan.isApplicable()) {
+                candidates.add(new StackCandidate(coupon, plan));
+            }
+        }
+        evaluation.finish();
+
+        return stackOptimizer.optimize(candidates, pricedCart.lineTotals(), policy);
+    }
+
+    // Transactional here too: the call to createCoupon is internal and would not start one
+    @Transactional
     public CouponResponseDTO createCouponFromFormat(CouponRequestFormatDTO request) {
         CouponRequestDTO internalRequest = convertFromFormat(request);
         return createCoupon(internalRequest);
     }
 
+    // Cached per cart fingerprint; the key carries the catalog version the result is computed from
     public ApplicableCouponsResponseDTO getApplicableCouponsFromFormat(CartRequestFormatDTO cartRequest) {
         CartRequestDTO internalRequest = convertCartFromFormat(cartRequest);
-        List<ApplicableCouponDTO> applicableCoupons = getApplicableCoupons(internalRequest);
-        
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+        CartFingerprint fingerprint = CartFingerprint.of(internalRequest.getItems(), catalog.getVersion(),
+                productCache.version());
+        return applicableCouponsCache.get(fingerprint, () -> toApplicableCouponsResponse(findApplicableCoupons(
+                buildCartFromRequest(internalRequest), catalog, CouponMetrics.Operation.APPLICABLE)));
+    }
+
+    private ApplicableCouponsResponseDTO toApplicableCouponsResponse(List<ApplicableCouponDTO> applicableCoupons) {
         List<ApplicableCouponFormatDTO> formatCoupons = applicableCoupons.stream()
                 .map(this::convertToFormat)
                 .collect(Collectors.toList());
@@ -99,66 +275,209 @@ public class CouponService {
         return response;
     }
 
-    public ApplyCouponResponseDTO applyCouponFromFormat(Long couponId, CartRequestFormatDTO cartRequest) {
+    public List<ApplicableCouponsResponseDTO> getApplicableCouponsBatchFromFormat(List<CartRequestFormatDTO> cartRequests) {
+        List<CartRequestDTO> internalRequests = cartRequests.stream()
+                .map(this::convertCartFromFormat)
+                .collect(Collectors.toList());
+
+        return getApplicableCouponsBatch(internalRequests).stream()
+                .map(applicableCoupons -> {
+                    ApplicableCouponsResponseDTO response = new ApplicableCouponsResponseDTO();
+                    response.setApplicable_coupons(applicableCoupons.stream()
+                            .map(this::convertToFormat)
+                            .collect(Collectors.toList()));
+                    return response;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public ApplicableCouponsResponseDTO getBestCouponsFromFormat(CartRequestFormatDTO cartRequest, int k) {
         CartRequestDTO internalRequest = convertCartFromFormat(cartRequest);
-        CartResponseDTO cartResponse = applyCoupon(couponId, internalRequest);
+        List<ApplicableCouponFormatDTO> formatCoupons = getBestCoupons(internalRequest, k).stream()
+                .map(this::convertToFormat)
+                .collect(Collectors.toList());
+
+        ApplicableCouponsResponseDTO response = new ApplicableCouponsResponseDTO();
+        response.setApplicable_coupons(formatCoupons);
+        return response;
+    }
+
+    public StackedCouponsResponseDTO getBestStackFromFormat(StackRequestFormatDTO request) {
+        CartRequestDTO internalRequest = convertCartFromFormat(new CartRequestFormatDTO(request.getCart()));
+        Set<CouponType> stackableTypes = request.getStackable_types() == null
+                ? EnumSet.allOf(CouponType.class)
+                : request.getStackable_types().stream()
+                        .map(this::parseCouponType)
+                        .collect(Collectors.toCollection(() -> EnumSet.noneOf(CouponType.class)));
+        StackingPolicy policy = new StackingPolicy(
+                stackableTypes,
+                request.getMax_coupons() != null ? request.getMax_coupons() : 3,
+                Duration.ofMillis(request.getTime_budget_ms() != null ? request.getTime_budget_ms() : 50L));
+
+        StackResult result = getBestStack(internalRequest, policy);
+
+        StackedCouponsResponseDTO response = new StackedCouponsResponseDTO();
+        response.setCoupons(result.getCoupons().stream()
+                .map(candidate -> convertToFormat(candidate.getPlan().toApplicableCoupon(candidate.getCoupon())))
+                .collect(Collectors.toList()));
+        response.setTotal_discount(result.getTotalDiscount());
+        response.setComplete(result.isComplete());
+        return response;
+    }
+
+    // Transactional here too: the call to applyCoupon is internal and would not start one
+    @Transactional
+    public ApplyCouponResponseDTO applyCouponFromFormat(Long couponId, CartRequestFormatDTO cartRequest, String customerId) {
+        CartRequestDTO internalRequest = convertCartFromFormat(cartRequest);
+        CartResponseDTO cartResponse = applyCoupon(couponId, internalRequest, customerId);
         return convertToApplyCouponResponse(cartResponse);
     }
 
+    // Unknown codes are answered from the catalog's code index and never reach the database
+    @Transactional
+    public ApplyCouponResponseDTO applyCouponByCodeFromFormat(String code, CartRequestFormatDTO cartRequest,
+                                                              String customerId) {
+        Optional<CouponSnapshot> coupon = couponCatalog.snapshot().findByCode(code);
+        metrics.recordCodeLookup(coupon.isPresent());
+        Long couponId = coupon
+                .orElseThrow(() -> new CouponNotFoundException("Coupon not found with code: " + code))
+                .getId();
+        return applyCouponFromFormat(couponId, cartRequest, customerId);
+    }
+
     @Transactional
-    public CartResponseDTO applyCoupon(Long couponId, CartRequestDTO cartRequest) {
-        Coupon coupon = couponRepository.findById(couponId)
+    public CartResponseDTO applyCoupon(Long couponId, CartRequestDTO cartRequest, String customerId) {
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+        CouponSnapshot coupon = catalog.find(couponId)
                 .orElseThrow(() -> new CouponNotFoundException("Coupon not found with id: " + couponId));
 
-        if (!coupon.getIsActive()) {
+        if (!coupon.isActive()) {
             throw new InvalidCouponException("Coupon is not active");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-        if (!isCouponValid(coupon, now)) {
+        if (!catalog.isLive(couponId)) {
             throw new InvalidCouponException("Coupon is not valid at this time");
         }
 
         Cart cart = buildCartFromRequest(cartRequest);
-        cart.setAppliedCoupon(coupon);
+        cart.setAppliedCoupon(couponRepository.getReferenceById(couponId));
 
-        CouponDiscountStrategy strategy = strategyFactory.getStrategy(coupon.getType());
-        ApplicableCouponDTO applicableCoupon = strategy.checkApplicability(coupon, cart);
-        if (applicableCoupon == null) {
+        CouponMetrics.Evaluation evaluation = metrics.startEvaluation(CouponMetrics.Operation.APPLY);
+        DiscountPlan plan = evaluation.evaluate(coupon, PricedCart.of(cart));
+        evaluation.finish();
+        if (!plan.isApplicable()) {
             throw new CouponNotApplicableException("Coupon is not applicable to this cart");
         }
 
-        strategy.applyDiscount(coupon, cart);
-        double totalDiscount = cart.getItems().stream()
-                .mapToDouble(item -> item.getDiscountAmount() != null ? item.getDiscountAmount() : 0.0)
-                .sum();
-        cart.setTotalDiscount(totalDiscount);
-        cart.setFinalAmount(cart.getTotalAmount() - totalDiscount);
-        cart = cartRepository.save(cart);
+        plan.applyTo(cart);
+        long totalDiscount = plan.getTotalDiscountMinor();
+        cart.setTotalDiscount(Money.toMajor(totalDiscount));
+        cart.setFinalAmount(Money.toMajor(Money.toMinor(cart.getTotalAmount()) - totalDiscount));
+
+        // Limits are taken last, once the coupon is known to apply, so rejected carts never consume a redemption.
+        // If the surrounding transaction rolls back, at flush or commit included, the redemption is returned (see
+        // redeem); a caller without one gets it back here.
+        RedemptionLimits.Redemption redemption = redemptionLimits.redeem(coupon, customerId);
+        try {
+            // The response is built from the computed cart; with write-behind a copy is persisted after we return
+            cartPersistence.persist(cart);
+            return mapToCartResponseDTO(cart, coupon);
+        } catch (RuntimeException e) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                redemption.cancel();
+            }
+            throw e;
+        }
+    }
+
+    public CartSessionResponseDTO createCartSession() {
+        return toSessionResponse(cartSessions.create());
+    }
+
+    public CartSessionResponseDTO getCartSession(String sessionId) {
+        return toSessionResponse(cartSessions.view(sessionId));
+    }
+
+    public void deleteCartSession(String sessionId) {
+        cartSessions.remove(sessionId);
+    }
+
+    // Adding a product that is already in the cart increases its quantity; a line keeps its price unless one is sent
+    public CartSessionResponseDTO addCartSessionItem(String sessionId, CartItemFormatDTO item) {
+        CartSession.Line added = toSessionLine(item.getProduct_id(), item);
+        return toSessionResponse(cartSessions.change(sessionId, item.getProduct_id(), line -> line == null
+                ? added
+                : new CartSession.Line(line.quantity() + added.quantity(),
+                        item.getPrice() != null ? added.unitPrice() : line.unitPrice(), added.catalogUnitPrice())));
+    }
+
+    public CartSessionResponseDTO updateCartSessionItem(String sessionId, Long productId, CartItemFormatDTO item) {
+        CartSession.Line updated = toSessionLine(productId, item);
+        return toSessionResponse(cartSessions.change(sessionId, productId, line -> {
+            if (line == null) {
+                throw new ProductNotFoundException("Product " + productId + " is not in the cart");
+            }
+            return new CartSession.Line(updated.quantity(),
+                    item.getPrice() != null ? updated.unitPrice() : line.unitPrice(), updated.catalogUnitPrice());
+        }));
+    }
 
-        return mapToCartResponseDTO(cart);
+    public CartSessionResponseDTO removeCartSessionItem(String sessionId, Long productId) {
+        return toSessionResponse(cartSessions.change(sessionId, productId, line -> null));
     }
 
-    private boolean isCouponValid(Coupon coupon, LocalDateTime now) {
-        if (coupon.getStartDate() != null && now.isBefore(coupon.getStartDate())) {
-            return false;
+    private CartSession.Line toSessionLine(Long productId, CartItemFormatDTO item) {
+        if (productId == null) {
+            throw new IllegalArgumentException("product_id is required");
         }
-        if (coupon.getEndDate() != null && now.isAfter(coupon.getEndDate())) {
-            return false;
+        if (item.getQuantity() == null || item.getQuantity() <= 0) {
+            throw new IllegalArgumentException("quantity must be greater than 0");
         }
-        return true;
+        Product product = resolveProducts(List.of(productId)).get(productId);
+        long unitPrice = Money.toMinor(item.getPrice() != null ? item.getPrice() : product.getPrice());
+        long catalogUnitPrice = product.getPrice() != null ? Money.toMinor(product.getPrice()) : unitPrice;
+        return new CartSession.Line(item.getQuantity(), unitPrice, catalogUnitPrice);
     }
 
+    private CartSessionResponseDTO toSessionResponse(CartSession.View view) {
+        List<CartItemFormatDTO> items = view.lines().entrySet().stream()
+                .map(entry -> new CartItemFormatDTO(entry.getKey(), entry.getValue().quantity(),
+                        Money.toMajor(entry.getValue().unitPrice())))
+                .collect(Collectors.toList());
+        List<ApplicableCouponFormatDTO> coupons = view.applicableCoupons().stream()
+                .map(this::convertToFormat)
+                .collect(Collectors.toList());
+        return new CartSessionResponseDTO(view.id(), items, Money.toMajor(view.total()), coupons);
+    }
 
+    private Set<Long> productIdsOf(Cart cart) {
+        return cart.getItems().stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+    }
 
     private Cart buildCartFromRequest(CartRequestDTO cartRequest) {
+        List<Long> productIds = cartRequest.getItems().stream()
+                .map(CartItemDTO::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        return buildCartFromRequest(cartRequest, resolveProducts(productIds));
+    }
+
+    private Map<Long, Product> resolveProducts(List<Long> productIds) {
+        metrics.recordProductLookups(productIds.size());
+        Map<Long, Product> products = new HashMap<>();
+        productCache.resolve(productIds).forEach((id, snapshot) -> products.put(id, snapshot.toProduct()));
+        return products;
+    }
+
+    private Cart buildCartFromRequest(CartRequestDTO cartRequest, Map<Long, Product> products) {
         Cart cart = new Cart();
         List<CartItem> items = new ArrayList<>();
-        double totalAmount = 0.0;
+        long totalAmount = 0L;
 
         for (CartItemDTO itemDTO : cartRequest.getItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + itemDTO.getProductId()));
+            Product product = products.get(itemDTO.getProductId());
 
             double itemPrice = (itemDTO.getPrice() != null) ? itemDTO.getPrice() : product.getPrice();
 
@@ -169,11 +488,11 @@ public class CouponService {
             cartItem.setCart(cart);
 
             items.add(cartItem);
-            totalAmount += itemPrice * itemDTO.getQuantity();
+            totalAmount += Money.toMinor(itemPrice) * itemDTO.getQuantity();
         }
 
         cart.setItems(items);
-        cart.setTotalAmount(totalAmount);
+        cart.setTotalAmount(Money.toMajor(totalAmount));
         return cart;
     }
 
@@ -191,6 +510,17 @@ public class CouponService {
             throw new InvalidCouponException("Discount value must be greater than 0");
         }
 
+        if (request.getCode() != null && CouponCode.normalize(request.getCode()) == null) {
+            throw new InvalidCouponException("Coupon code must be 1-" + CouponCode.MAX_LENGTH
+                    + " letters, digits, '-' or '_'");
+        }
+        if (request.getMaxRedemptions() != null && request.getMaxRedemptions() <= 0) {
+            throw new InvalidCouponException("Max redemptions must be greater than 0");
+        }
+        if (request.getMaxRedemptionsPerCustomer() != null && request.getMaxRedemptionsPerCustomer() <= 0) {
+            throw new InvalidCouponException("Max redemptions per customer must be greater than 0");
+        }
+
         if (request.getStartDate() != null && request.getEndDate() != null) {
             if (request.getStartDate().isAfter(request.getEndDate())) {
                 throw new InvalidCouponException("Start date must be before end date");
@@ -221,9 +551,22 @@ public class CouponService {
         }
     }
 
+    // The unique constraint on coupons.code still guards concurrent writers that both pass this check
+    private void checkCodeAvailable(String code, Long couponId) {
+        if (code == null) {
+            return;
+        }
+        couponCatalog.snapshot().findByCode(code)
+                .filter(existing -> !existing.getId().equals(couponId))
+                .ifPresent(existing -> {
+                    throw new InvalidCouponException("Coupon code already in use: " + CouponCode.normalize(code));
+                });
+    }
+
     private Coupon mapToEntity(CouponRequestDTO dto) {
         Coupon coupon = new Coupon();
         coupon.setName(dto.getName());
+        coupon.setCode(CouponCode.normalize(dto.getCode()));
         coupon.setType(dto.getType());
         coupon.setDiscountType(dto.getDiscountType());
         coupon.setDiscountValue(dto.getDiscountValue());
@@ -234,6 +577,8 @@ public class CouponService {
         coupon.setBuyProductIds(dto.getBuyProductIds());
         coupon.setFreeProductIds(dto.getFreeProductIds());
         coupon.setMaxRepetitions(dto.getMaxRepetitions());
+        coupon.setMaxRedemptions(dto.getMaxRedemptions());
+        coupon.setMaxRedemptionsPerCustomer(dto.getMaxRedemptionsPerCustomer());
         coupon.setIsActive(dto.getIsActive() != null ? dto.getIsActive() : true);
         coupon.setStartDate(dto.getStartDate());
         coupon.setEndDate(dto.getEndDate());
@@ -242,6 +587,7 @@ public class CouponService {
 
     private void updateCouponFromDTO(Coupon coupon, CouponRequestDTO dto) {
         coupon.setName(dto.getName());
+        coupon.setCode(CouponCode.normalize(dto.getCode()));
         coupon.setType(dto.getType());
         coupon.setDiscountType(dto.getDiscountType());
         coupon.setDiscountValue(dto.getDiscountValue());
@@ -252,6 +598,8 @@ public class CouponService {
         coupon.setBuyProductIds(dto.getBuyProductIds());
         coupon.setFreeProductIds(dto.getFreeProductIds());
         coupon.setMaxRepetitions(dto.getMaxRepetitions());
+        coupon.setMaxRedemptions(dto.getMaxRedemptions());
+        coupon.setMaxRedemptionsPerCustomer(dto.getMaxRedemptionsPerCustomer());
         if (dto.getIsActive() != null) {
             coupon.setIsActive(dto.getIsActive());
         }
@@ -263,31 +611,39 @@ public class CouponService {
         CouponResponseDTO dto = new CouponResponseDTO();
         dto.setId(coupon.getId());
         dto.setName(coupon.getName());
+        dto.setCode(coupon.getCode());
         dto.setType(coupon.getType());
         dto.setDiscountType(coupon.getDiscountType());
         dto.setDiscountValue(coupon.getDiscountValue());
         dto.setMinimumCartTotal(coupon.getMinimumCartTotal());
-        dto.setApplicableProductIds(coupon.getApplicableProductIds());
+        dto.setApplicableProductIds(copyOf(coupon.getApplicableProductIds()));
         dto.setBuyQuantity(coupon.getBuyQuantity());
         dto.setGetQuantity(coupon.getGetQuantity());
-        dto.setBuyProductIds(coupon.getBuyProductIds());
-        dto.setFreeProductIds(coupon.getFreeProductIds());
+        dto.setBuyProductIds(copyOf(coupon.getBuyProductIds()));
+        dto.setFreeProductIds(copyOf(coupon.getFreeProductIds()));
         dto.setMaxRepetitions(coupon.getMaxRepetitions());
+        dto.setMaxRedemptions(coupon.getMaxRedemptions());
+        dto.setMaxRedemptionsPerCustomer(coupon.getMaxRedemptionsPerCustomer());
         dto.setIsActive(coupon.getIsActive());
         dto.setStartDate(coupon.getStartDate());
         dto.setEndDate(coupon.getEndDate());
         return dto;
     }
 
-    private CartResponseDTO mapToCartResponseDTO(Cart cart) {
+    // Copies load lazy ID lists while the session is open; the DTO must not hold on to entity collections
+    private static List<Long> copyOf(List<Long> ids) {
+        return ids != null ? new ArrayList<>(ids) : null;
+    }
+
+    private CartResponseDTO mapToCartResponseDTO(Cart cart, CouponSnapshot appliedCoupon) {
         CartResponseDTO dto = new CartResponseDTO();
         dto.setId(cart.getId());
         dto.setTotalAmount(cart.getTotalAmount());
         dto.setTotalDiscount(cart.getTotalDiscount());
         dto.setFinalAmount(cart.getFinalAmount());
-        if (cart.getAppliedCoupon() != null) {
-            dto.setAppliedCouponId(cart.getAppliedCoupon().getId());
-            dto.setAppliedCouponName(cart.getAppliedCoupon().getName());
+        if (appliedCoupon != null) {
+            dto.setAppliedCouponId(appliedCoupon.getId());
+            dto.setAppliedCouponName(appliedCoupon.getName());
         }
 
         List<CartItemResponseDTO> itemDTOs = cart.getItems().stream()
@@ -313,19 +669,11 @@ public class CouponService {
         CouponDetailsDTO details = formatRequest.getDetails();
         
         String typeStr = formatRequest.getType().toLowerCase();
-        CouponType type;
-        if (typeStr.equals("cart-wise")) {
-            type = CouponType.CART_WISE;
-        } else if (typeStr.equals("product-wise")) {
-            type = CouponType.PRODUCT_WISE;
-        } else if (typeStr.equals("bxgy")) {
-            type = CouponType.BXGY;
-        } else {
-            throw new InvalidCouponException("Invalid coupon type: " + formatRequest.getType());
-        }
+        CouponType type = parseCouponType(formatRequest.getType());
         
         // Generate a default name if not provided
         request.setName("Coupon-" + typeStr + "-" + System.currentTimeMillis());
+        request.setCode(formatRequest.getCode());
         request.setType(type);
         request.setDiscountType(DiscountType.PERCENTAGE);
         request.setIsActive(true);
@@ -360,12 +708,30 @@ public class CouponService {
             request.setMaxRepetitions(details.getRepition_limit());
         }
         
+        request.setMaxRedemptions(details.getMax_redemptions());
+        request.setMaxRedemptionsPerCustomer(details.getMax_redemptions_per_customer());
         request.setStartDate(details.getStart_date());
         request.setEndDate(details.getEnd_date());
         
         return request;
     }
 
+    private CouponType parseTypeFilter(String value) {
+        return value == null || value.isBlank() ? null : parseCouponType(value);
+    }
+
+    private CouponType parseCouponType(String value) {
+        String typeStr = value.toLowerCase();
+        if (typeStr.equals("cart-wise")) {
+            return CouponType.CART_WISE;
+        } else if (typeStr.equals("product-wise")) {
+            return CouponType.PRODUCT_WISE;
+        } else if (typeStr.equals("bxgy")) {
+            return CouponType.BXGY;
+        }
+        throw new InvalidCouponException("Invalid coupon type: " + value);
+    }
+
     private CartRequestDTO convertCartFromFormat(CartRequestFormatDTO formatRequest) {
         CartRequestDTO request = new CartRequestDTO();
         List<CartItemDTO> items = formatRequest.getCart().getItems().stream()
@@ -427,5 +793,8 @@ public class CouponService {
         response.setUpdated_cart(updatedCart);
         return response;
     }
+
+    private record BoundedCandidate(CouponSnapshot coupon, long bound) {
+    }
 }
 
@@ -0,0 +1,43 @@
+package com.monk.Commerce.MonkCommerce.service.batch;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Bounded fan-out for batch endpoints; a dedicated pool keeps batch work off the common pool
+@Component
+public class BatchEvaluator {
+
+    private final ForkJoinPool pool;
+    private final int maxBatchSize;
+
+    public BatchEvaluator(@Value("${coupon.batch.parallelism:4}") int parallelism,
+                          @Value("${coupon.batch.max-carts:1000}") int maxBatchSize) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void checkBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new IllegalArgumentException("Batch exceeds the maximum of " + maxBatchSize + " carts");
+        }
+    }
+
+    // Results come back in input order regardless of which worker finished first
+    public <T, R> List<R> mapInOrder(List<T> inputs, Function<T, R> evaluation) {
+        return pool.submit(() -> inputs.parallelStream()
+                        .map(evaluation)
+                        .collect(Collectors.toList()))
+                .join();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,263 @@
+package com.monk.Commerce.MonkCommerce.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.monk.Commerce.MonkCommerce.dto.CouponImportReportDTO;
+import com.monk.Commerce.MonkCommerce.dto.CouponRequestDTO;
+import com.monk.Commerce.MonkCommerce.dto.ImportErrorDTO;
+import com.monk.Commerce.MonkCommerce.exception.InvalidCouponException;
+import com.monk.Commerce.MonkCommerce.exception.ProductNotFoundException;
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Streams a coupon file one line at a time. Every line is validated on its own and failures go to the report;
+ * valid coupons are inserted in transactions of batchSize (JDBC-batched through pooled sequence IDs) and the
+ * persistence context is cleared after each one, so no entities outlive their batch. The catalog is published
+ * once at the end, so the imported CouponSnapshots (and their change versions) are held until then: memory grows
+ * with the number of imported coupons, by one snapshot each. Publishing per batch would bound it, but every
+ * publish rebuilds the whole catalog snapshot, which makes large imports quadratic.
+ */
+@Slf4j
+@Component
+public class CouponImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final Set<String> CSV_COLUMNS = Set.of("name", "code", "type", "discountType", "discountValue",
+            "minimumCartTotal", "applicableProductIds", "buyQuantity", "getQuantity", "buyProductIds",
+            "freeProductIds", "maxRepetitions", "maxRedemptions", "maxRedemptionsPerCustomer", "isActive", "startDate",
+            "endDate");
+    private static final Set<String> CSV_LIST_COLUMNS = Set.of("applicableProductIds", "buyProductIds", "freeProductIds");
+
+    private final CouponRepository couponRepository;
+    private final ProductRepository productRepository;
+    private final CouponCatalog couponCatalog;
+    private final CatalogChangeLog changeLog;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public CouponImporter(CouponRepository couponRepository,
+                          ProductRepository productRepository,
+                          CouponCatalog couponCatalog,
+                          CatalogChangeLog changeLog,
+                          EntityManager entityManager,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${coupon.import.batch-size:500}") int batchSize) {
+        this.couponRepository = couponRepository;
+        this.productRepository = productRepository;
+        this.couponCatalog = couponCatalog;
+        this.changeLog = changeLog;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    // toEntity applies the same validation as single-coupon creation and throws on the first violation
+    public CouponImportReportDTO importCoupons(InputStream body, ImportFormat format,
+                                               Function<CouponRequestDTO, Coupon> toEntity) {
+        ProductIdSet knownProducts = ProductIdSet.of(productRepository.findAllIds());
+        Report report = new Report();
+        List<CouponSnapshot> imported = new ArrayList<>();
+        Map<Long, Long> changeVersions = new HashMap<>();
+        List<PendingCoupon> chunk = new ArrayList<>(batchSize);
+        // Codes already in the catalog are rejected by toEntity; this catches repeats within the file
+        Set<String> codes = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String[] header = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == ImportFormat.CSV && header == null) {
+                    header = readHeader(line);
+                    continue;
+                }
+                try {
+                    CouponRequestDTO request = format == ImportFormat.CSV
+                            ? fromCsv(header, splitCsv(line))
+                            : objectMapper.readValue(line, CouponRequestDTO.class);
+                    Coupon coupon = toEntity.apply(request);
+                    checkProducts(coupon, knownProducts);
+                    if (coupon.getCode() != null && !codes.add(coupon.getCode())) {
+                        throw new InvalidCouponException("Duplicate coupon code in this import: " + coupon.getCode());
+                    }
+                    chunk.add(new PendingCoupon(lineNumber, coupon));
+                } catch (JsonProcessingException e) {
+                    report.fail(lineNumber, e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    report.fail(lineNumber, firstLine(e));
+                }
+                if (chunk.size() == batchSize) {
+                    insert(chunk, imported, changeVersions, report);
+                }
+            }
+            insert(chunk, imported, changeVersions, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the import body", e);
+        } finally {
+            // Whatever was committed before a read failure is published too
+            if (!imported.isEmpty()) {
+                couponCatalog.putAll(imported, changeVersions);
+            }
+        }
+        return report.toDTO(imported.size());
+    }
+
+    // A failed batch is retried a row at a time, so only the lines the database actually rejects are reported
+    private void insert(List<PendingCoupon> chunk, List<CouponSnapshot> imported, Map<Long, Long> changeVersions,
+                        Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            save(chunk, imported, changeVersions);
+        } catch (RuntimeException e) {
+            log.warn("Import batch of {} coupons rolled back; retrying its rows one at a time", chunk.size(), e);
+            for (PendingCoupon pending : chunk) {
+                try {
+                    save(List.of(pending), imported, changeVersions);
+                } catch (RuntimeException rowError) {
+                    report.fail(pending.line(), "Insert failed: " + firstLine(rowError));
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private void save(List<PendingCoupon> pending, List<CouponSnapshot> imported, Map<Long, Long> changeVersions) {
+        List<Coupon> coupons = pending.stream().map(PendingCoupon::coupon).toList();
+        // A rolled-back batch leaves sequence IDs on its entities; clear them so the retry inserts them afresh
+        coupons.forEach(coupon -> coupon.setId(null));
+        Map<Long, Long> versions = new HashMap<>();
+        imported.addAll(transactionTemplate.execute(status -> {
+            couponRepository.saveAll(coupons);
+            entityManager.flush();
+            versions.putAll(changeLog.recordCoupons(coupons.stream().map(Coupon::getId).toList()));
+            List<CouponSnapshot> snapshots = coupons.stream().map(CouponSnapshot::from).toList();
+            entityManager.clear();
+            return snapshots;
+        }));
+        changeVersions.putAll(versions);
+    }
+
+    private static void checkProducts(Coupon coupon, ProductIdSet knownProducts) {
+        for (List<Long> ids : Arrays.asList(coupon.getApplicableProductIds(), coupon.getBuyProductIds(),
+                coupon.getFreeProductIds())) {
+            if (ids == null) {
+                continue;
+            }
+            for (Long id : ids) {
+                if (id == null || !knownProducts.contains(id)) {
+                    throw new ProductNotFoundException("Product not found with id: " + id);
+                }
+            }
+        }
+    }
+
+    private static String[] readHeader(String line) {
+        String[] header = splitCsv(line);
+        for (int i = 0; i < header.length; i++) {
+            header[i] = header[i].trim();
+            if (!CSV_COLUMNS.contains(header[i])) {
+                throw new InvalidCouponException("Unknown CSV column: " + header[i]);
+            }
+        }
+        return header;
+    }
+
+    // CSV cells use the CouponRequestDTO field names; list cells separate IDs with '|'
+    private CouponRequestDTO fromCsv(String[] header, String[] cells) {
+        if (cells.length > header.length) {
+            throw new InvalidCouponException("Expected at most " + header.length + " columns but found " + cells.length);
+        }
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < cells.length; i++) {
+            String cell = cells[i].trim();
+            if (cell.isEmpty()) {
+                continue;
+            }
+            values.put(header[i], CSV_LIST_COLUMNS.contains(header[i]) ? Arrays.asList(cell.split("\\|")) : cell);
+        }
+        return objectMapper.convertValue(values, CouponRequestDTO.class);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private static String[] splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells.toArray(new String[0]);
+    }
+
+    private static String firstLine(Exception e) {
+        String message = e.getMessage();
+        return message == null ? e.getClass().getSimpleName() : message.lines().findFirst().orElse(message);
+    }
+
+    private record PendingCoupon(int line, Coupon coupon) {
+    }
+
+    private static final class Report {
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private int failed;
+
+        void fail(int line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+
+        CouponImportReportDTO toDTO(int imported) {
+            return new CouponImportReportDTO(imported, failed, errors);
+        }
+    }
+}
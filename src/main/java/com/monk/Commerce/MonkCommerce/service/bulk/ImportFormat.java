@@ -0,0 +1,13 @@
+package com.monk.Commerce.MonkCommerce.service.bulk;
+
+import org.springframework.http.MediaType;
+
+public enum ImportFormat {
+    NDJSON, CSV;
+
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+
+    public static ImportFormat of(MediaType mediaType) {
+        return "csv".equalsIgnoreCase(mediaType.getSubtype()) ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,37 @@
+package com.monk.Commerce.MonkCommerce.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponsResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+// Bounded W-TinyLFU cache of /applicable-coupons responses; entries for old versions simply age out
+@Component
+public class ApplicableCouponsCache implements MeterBinder {
+
+    private final Cache<CartFingerprint, ApplicableCouponsResponseDTO> cache;
+
+    public ApplicableCouponsCache(@Value("${coupon.result-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    // Hit/miss/eviction counts under cache.* with cache=applicable-coupons
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "applicable-coupons");
+    }
+
+    // Concurrent misses for the same cart are evaluated once; failures are not cached
+    public ApplicableCouponsResponseDTO get(CartFingerprint fingerprint, Supplier<ApplicableCouponsResponseDTO> evaluation) {
+        return cache.get(fingerprint, key -> evaluation.get());
+    }
+}
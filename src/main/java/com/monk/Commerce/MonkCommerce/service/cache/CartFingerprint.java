@@ -0,0 +1,59 @@
+package com.monk.Commerce.MonkCommerce.service.cache;
+
+import com.monk.Commerce.MonkCommerce.dto.CartItemDTO;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Cache key for an evaluated cart: the (productId, quantity, price) tuples plus the catalog and product versions
+ * they were evaluated against, so any coupon or product change makes older keys unreachable. Lines keep cart
+ * order: BxGy gives free items away in line order, so reordered carts can legitimately get different discounts.
+ */
+public final class CartFingerprint {
+
+    // Lines without a price are evaluated at the product's list price
+    private static final long CATALOG_PRICE = Long.MIN_VALUE;
+
+    private final long catalogVersion;
+    private final long productVersion;
+    private final long[] lines;
+    private final int hash;
+
+    private CartFingerprint(long catalogVersion, long productVersion, long[] lines) {
+        this.catalogVersion = catalogVersion;
+        this.productVersion = productVersion;
+        this.lines = lines;
+        this.hash = 31 * (31 * Long.hashCode(catalogVersion) + Long.hashCode(productVersion)) + Arrays.hashCode(lines);
+    }
+
+    public static CartFingerprint of(List<CartItemDTO> items, long catalogVersion, long productVersion) {
+        long[] lines = new long[items.size() * 3];
+        int i = 0;
+        for (CartItemDTO item : items) {
+            lines[i++] = item.getProductId();
+            lines[i++] = item.getQuantity();
+            lines[i++] = item.getPrice() != null ? Money.toMinor(item.getPrice()) : CATALOG_PRICE;
+        }
+        return new CartFingerprint(catalogVersion, productVersion, lines);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CartFingerprint other)) {
+            return false;
+        }
+        return catalogVersion == other.catalogVersion
+                && productVersion == other.productVersion
+                && Arrays.equals(lines, other.lines);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
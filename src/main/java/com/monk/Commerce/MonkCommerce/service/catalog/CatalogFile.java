@@ -0,0 +1,263 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Binary image of the evaluation catalog: every coupon snapshot plus product prices, big-endian.
+ *
+ *   header  magic "MCCS" | format version | change-log version | written at (epoch ms)
+ *           | coupon count | product count | payload length | CRC32C of payload
+ *   payload coupons, then products; nullable values carry a presence byte, lists a count (-1 for null)
+ *
+ * Files are written to a sibling and moved into place, so readers see the old file or the new one, never a torn
+ * one. Reads memory-map the file and verify the header and checksum before decoding anything.
+ *
+ * The change-log version is the catalog_changes version the contents are complete up to. It is what lets a
+ * restart tell whether the database is still the one the file was written from (see CatalogFileStore).
+ */
+public final class CatalogFile {
+
+    public record Contents(long changeLogVersion, long writtenAt, List<CouponSnapshot> coupons,
+                           List<ProductSnapshot> products) {
+    }
+
+    private static final int MAGIC = 0x4D43_4353;
+    // Bump when the layout or meaning changes, including reordering CouponType or DiscountType (stored by ordinal).
+    // 2: the version field holds the change-log version rather than the node-local catalog version.
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final CouponType[] TYPES = CouponType.values();
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
+
+    private CatalogFile() {
+    }
+
+    public static void write(Path path, long changeLogVersion, Collection<CouponSnapshot> coupons,
+                             Collection<ProductSnapshot> products) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            // Not closed: closing would close the channel before the header is written
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            for (CouponSnapshot coupon : coupons) {
+                writeCoupon(out, coupon);
+            }
+            for (ProductSnapshot product : products) {
+                out.writeLong(product.getId());
+                writeString(out, product.getName());
+                writeDouble(out, product.getPrice());
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(changeLogVersion)
+                    .putLong(System.currentTimeMillis())
+                    .putInt(coupons.size())
+                    .putInt(products.size())
+                    .putLong(channel.position() - HEADER_BYTES)
+                    .putLong(crc.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static Contents read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a catalog snapshot file: " + path);
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog snapshot format " + formatVersion + " in " + path);
+        }
+        long changeLogVersion = buffer.getLong();
+        long writtenAt = buffer.getLong();
+        int couponCount = buffer.getInt();
+        int productCount = buffer.getInt();
+        long payloadLength = buffer.getLong();
+        long checksum = buffer.getLong();
+        if (payloadLength != buffer.remaining()) {
+            throw new IOException("Truncated catalog snapshot file: " + path);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice());
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch in catalog snapshot file: " + path);
+        }
+
+        try {
+            List<CouponSnapshot> coupons = new ArrayList<>(couponCount);
+            for (int i = 0; i < couponCount; i++) {
+                coupons.add(readCoupon(buffer));
+            }
+            List<ProductSnapshot> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                products.add(new ProductSnapshot(buffer.getLong(), readString(buffer), readDouble(buffer)));
+            }
+            return new Contents(changeLogVersion, writtenAt, coupons, products);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed catalog snapshot file: " + path, e);
+        }
+    }
+
+    private static void writeCoupon(DataOutputStream out, CouponSnapshot coupon) throws IOException {
+        out.writeLong(coupon.getId());
+        writeString(out, coupon.getName());
+        writeString(out, coupon.getCode());
+        out.writeByte(coupon.getType() != null ? coupon.getType().ordinal() : -1);
+        out.writeByte(coupon.getDiscountType() != null ? coupon.getDiscountType().ordinal() : -1);
+        writeDouble(out, coupon.getDiscountValue());
+        writeDouble(out, coupon.getMinimumCartTotal());
+        writeIds(out, coupon.getApplicableProductIds());
+        writeInt(out, coupon.getBuyQuantity());
+        writeInt(out, coupon.getGetQuantity());
+        writeIds(out, coupon.getBuyProductIds());
+        writeIds(out, coupon.getFreeProductIds());
+        writeInt(out, coupon.getMaxRepetitions());
+        writeInt(out, coupon.getMaxRedemptions());
+        writeInt(out, coupon.getMaxRedemptionsPerCustomer());
+        out.writeBoolean(coupon.isActive());
+        writeDateTime(out, coupon.getStartDate());
+        writeDateTime(out, coupon.getEndDate());
+    }
+
+    // Goes through CouponSnapshot.from so minor units and product ID sets are derived exactly as on a DB load
+    private static CouponSnapshot readCoupon(ByteBuffer in) {
+        Coupon coupon = new Coupon();
+        coupon.setId(in.getLong());
+        coupon.setName(readString(in));
+        coupon.setCode(readString(in));
+        byte type = in.get();
+        coupon.setType(type >= 0 ? TYPES[type] : null);
+        byte discountType = in.get();
+        coupon.setDiscountType(discountType >= 0 ? DISCOUNT_TYPES[discountType] : null);
+        coupon.setDiscountValue(readDouble(in));
+        coupon.setMinimumCartTotal(readDouble(in));
+        coupon.setApplicableProductIds(readIds(in));
+        coupon.setBuyQuantity(readInt(in));
+        coupon.setGetQuantity(readInt(in));
+        coupon.setBuyProductIds(readIds(in));
+        coupon.setFreeProductIds(readIds(in));
+        coupon.setMaxRepetitions(readInt(in));
+        coupon.setMaxRedemptions(readInt(in));
+        coupon.setMaxRedemptionsPerCustomer(readInt(in));
+        coupon.setIsActive(in.get() != 0);
+        coupon.setStartDate(readDateTime(in));
+        coupon.setEndDate(readDateTime(in));
+        return CouponSnapshot.from(coupon);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIds(DataOutputStream out, List<Long> ids) throws IOException {
+        if (ids == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(ids.size());
+        for (Long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static List<Long> readIds(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(in.getLong());
+        }
+        return ids;
+    }
+
+    private static void writeInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInt(ByteBuffer in) {
+        return in.get() != 0 ? in.getInt() : null;
+    }
+
+    private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static Double readDouble(ByteBuffer in) {
+        return in.get() != 0 ? in.getDouble() : null;
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        return in.get() != 0 ? LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC) : null;
+    }
+}
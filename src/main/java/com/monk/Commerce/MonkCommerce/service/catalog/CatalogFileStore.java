@@ -0,0 +1,153 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangePoller;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Warm start from a catalog snapshot file (see CatalogFile). The database stays authoritative: on startup the
+ * file is only used when it still describes this database, meaning the change-log version, coupon count and
+ * highest coupon id all match. It is then restored into the catalog and the product cache, and CouponCatalog
+ * skips its full load. Anything else (a wiped or replaced database, rows changed behind the application, a file
+ * from another environment) discards the file and the node loads from the database as it would without one.
+ *
+ * While running, the file is rewritten every interval when the catalog or products changed, and once more on
+ * shutdown. It is stamped with the change-log version this node has applied, taken before the catalog is read,
+ * so the contents hold at least every change up to it. An empty path disables both.
+ */
+@Slf4j
+@Component
+public class CatalogFileStore {
+
+    private final CouponCatalog couponCatalog;
+    private final ProductCache productCache;
+    private final CouponRepository couponRepository;
+    private final ProductRepository productRepository;
+    private final CatalogChangeLog changeLog;
+    private final CatalogChangePoller changePoller;
+    private final Path path;
+    private final Duration interval;
+    private ScheduledExecutorService writer;
+    private long writtenCatalogVersion = -1L;
+    private long writtenChangeLogVersion = -1L;
+    private long writtenProductVersion = -1L;
+
+    public CatalogFileStore(CouponCatalog couponCatalog,
+                            ProductCache productCache,
+                            CouponRepository couponRepository,
+                            ProductRepository productRepository,
+                            CatalogChangeLog changeLog,
+                            CatalogChangePoller changePoller,
+                            @Value("${coupon.snapshot-file.path:}") String path,
+                            @Value("${coupon.snapshot-file.interval:5m}") Duration interval) {
+        this.couponCatalog = couponCatalog;
+        this.productCache = productCache;
+        this.couponRepository = couponRepository;
+        this.productRepository = productRepository;
+        this.changeLog = changeLog;
+        this.changePoller = changePoller;
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.interval = interval;
+    }
+
+    // ApplicationStartedEvent precedes the ApplicationReadyEvent that triggers the database load; the change
+    // poller captures its start version first, so nothing committed after the file check can be missed
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void start() {
+        if (path == null) {
+            return;
+        }
+        if (Files.exists(path)) {
+            restore();
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writeIfChanged, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        writeIfChanged();
+    }
+
+    // A bad file is logged and skipped; the node then starts from the database as it would without one
+    private void restore() {
+        long started = System.nanoTime();
+        try {
+            CatalogFile.Contents contents = CatalogFile.read(path);
+            String mismatch = mismatch(contents);
+            if (mismatch != null) {
+                log.info("Discarding catalog snapshot file {}: {}", path, mismatch);
+                return;
+            }
+            couponCatalog.restore(contents.coupons());
+            productCache.preload(contents.products());
+            log.info("Restored {} coupons and {} products from {} in {} ms", contents.coupons().size(),
+                    contents.products().size(), path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring catalog snapshot file {}", path, e);
+        }
+    }
+
+    private String mismatch(CatalogFile.Contents contents) {
+        long version = changeLog.currentVersion();
+        if (contents.changeLogVersion() != version) {
+            return "written at change-log version " + contents.changeLogVersion() + ", database is at " + version;
+        }
+        long count = couponRepository.count();
+        Long maxId = couponRepository.findMaxId();
+        Long fileMaxId = contents.coupons().stream().map(CouponSnapshot::getId).max(Long::compare).orElse(null);
+        if (count != contents.coupons().size() || !Objects.equals(maxId, fileMaxId)) {
+            return "holds " + contents.coupons().size() + " coupons up to id " + fileMaxId + ", database has "
+                    + count + " up to id " + maxId;
+        }
+        return null;
+    }
+
+    synchronized void writeIfChanged() {
+        long changeLogVersion = changePoller.appliedVersion();
+        CatalogSnapshot catalog = couponCatalog.snapshot();
+        long productVersion = productCache.version();
+        if (catalog.getVersion() == writtenCatalogVersion && productVersion == writtenProductVersion
+                && changeLogVersion == writtenChangeLogVersion) {
+            return;
+        }
+        try {
+            CatalogFile.write(path, changeLogVersion, catalog.getCoupons().values(),
+                    productRepository.findAllSnapshots());
+            writtenCatalogVersion = catalog.getVersion();
+            writtenProductVersion = productVersion;
+            writtenChangeLogVersion = changeLogVersion;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write catalog snapshot file {}", path, e);
+        }
+    }
+}
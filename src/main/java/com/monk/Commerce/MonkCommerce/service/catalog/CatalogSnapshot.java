@@ -0,0 +1,110 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import lombok.Getter;
+
+import java.util.*;
+
+// Point-in-time, read-only view of the coupon catalog. A new instance is published on every change.
+@Getter
+public class CatalogSnapshot {
+
+    private static final Comparator<CouponSnapshot> BY_ID = Comparator.comparing(CouponSnapshot::getId);
+
+    private final long version;
+    private final Map<Long, CouponSnapshot> coupons;
+    // Coupons that are active and inside their validity window; only these are indexed
+    private final List<CouponSnapshot> liveCoupons;
+    private final ThresholdIndex cartWiseIndex;
+    // product ID -> live PRODUCT_WISE / BXGY coupons referencing it, sorted by coupon ID
+    private final Map<Long, List<CouponSnapshot>> productIndex;
+    // Every coupon that has a code, keyed by its normalized code; the catalog is complete, so a miss is final
+    private final Map<String, CouponSnapshot> codeIndex;
+
+    private CatalogSnapshot(long version, Map<Long, CouponSnapshot> coupons, List<CouponSnapshot> liveCoupons,
+                            ThresholdIndex cartWiseIndex, Map<Long, List<CouponSnapshot>> productIndex,
+                            Map<String, CouponSnapshot> codeIndex) {
+        this.version = version;
+        this.coupons = coupons;
+        this.liveCoupons = liveCoupons;
+        this.cartWiseIndex = cartWiseIndex;
+        this.productIndex = productIndex;
+        this.codeIndex = codeIndex;
+    }
+
+    public static CatalogSnapshot empty() {
+        return new CatalogSnapshot(0L, Map.of(), List.of(), ThresholdIndex.empty(), Map.of(), Map.of());
+    }
+
+    public static CatalogSnapshot of(long version, Collection<CouponSnapshot> coupons, Set<Long> liveIds) {
+        Map<Long, CouponSnapshot> byId = new HashMap<>(coupons.size() * 2);
+        Map<String, CouponSnapshot> byCode = new HashMap<>();
+        List<CouponSnapshot> live = new ArrayList<>(liveIds.size());
+        for (CouponSnapshot coupon : coupons) {
+            byId.put(coupon.getId(), coupon);
+            if (coupon.getCode() != null) {
+                byCode.put(coupon.getCode(), coupon);
+            }
+            if (liveIds.contains(coupon.getId())) {
+                live.add(coupon);
+            }
+        }
+        live.sort(BY_ID);
+
+        List<CouponSnapshot> cartWise = new ArrayList<>();
+        Map<Long, List<CouponSnapshot>> productIndex = new HashMap<>();
+        for (CouponSnapshot coupon : live) {
+            if (coupon.getType() == CouponType.CART_WISE) {
+                cartWise.add(coupon);
+            } else {
+                // Iterating in ID order keeps every posting list sorted without a second pass
+                for (Long productId : referencedProductIds(coupon)) {
+                    productIndex.computeIfAbsent(productId, id -> new ArrayList<>()).add(coupon);
+                }
+            }
+        }
+        productIndex.replaceAll((id, postings) -> List.copyOf(postings));
+
+        return new CatalogSnapshot(version, Collections.unmodifiableMap(byId), Collections.unmodifiableList(live),
+                ThresholdIndex.of(cartWise), Collections.unmodifiableMap(productIndex),
+                Collections.unmodifiableMap(byCode));
+    }
+
+    public Optional<CouponSnapshot> find(Long id) {
+        return Optional.ofNullable(coupons.get(id));
+    }
+
+    // Case-insensitive; malformed input misses without hashing
+    public Optional<CouponSnapshot> findByCode(String code) {
+        String normalized = CouponCode.normalize(code);
+        return normalized != null ? Optional.ofNullable(codeIndex.get(normalized)) : Optional.empty();
+    }
+
+    public boolean isLive(Long id) {
+        CouponSnapshot coupon = coupons.get(id);
+        return coupon != null && Collections.binarySearch(liveCoupons, coupon, BY_ID) >= 0;
+    }
+
+    // Union of the qualifying cart-wise coupons and the posting lists of the given products, in coupon ID order
+    public List<CouponSnapshot> candidatesFor(Collection<Long> productIds, long cartTotal) {
+        List<CouponSnapshot> cartWise = cartWiseIndex.qualifying(cartTotal);
+        Map<Long, CouponSnapshot> candidates = new HashMap<>();
+        for (Long productId : productIds) {
+            for (CouponSnapshot coupon : productIndex.getOrDefault(productId, List.of())) {
+                candidates.putIfAbsent(coupon.getId(), coupon);
+            }
+        }
+        List<CouponSnapshot> result = new ArrayList<>(cartWise.size() + candidates.size());
+        result.addAll(cartWise);
+        result.addAll(candidates.values());
+        result.sort(BY_ID);
+        return result;
+    }
+
+    private static Set<Long> referencedProductIds(CouponSnapshot coupon) {
+        Set<Long> productIds = new HashSet<>(coupon.getApplicableProductIds());
+        productIds.addAll(coupon.getBuyProductIds());
+        productIds.addAll(coupon.getFreeProductIds());
+        return productIds;
+    }
+}
@@ -0,0 +1,234 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CouponCatalog {
+
+    private final CouponRepository couponRepository;
+    private final Clock clock;
+
+    private final Map<Long, CouponSnapshot> coupons = new HashMap<>();
+    private final Set<Long> liveIds = new HashSet<>();
+    // Change-log version behind each coupon's current state, and behind each removal until the poller has moved
+    // past it. Local commits and polled changes race to patch the catalog; the older of the two is dropped.
+    private final Map<Long, Long> changeVersions = new HashMap<>();
+    private final Map<Long, Long> tombstones = new HashMap<>();
+    private final ValidityTimeline timeline = new ValidityTimeline();
+    private long version;
+    private volatile CatalogSnapshot current = CatalogSnapshot.empty();
+    private volatile LocalDateTime nextTransition;
+    private boolean restored;
+
+    // First among ready listeners: the change-log poller starts only once this load is published
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(readOnly = true)
+    public void load() {
+        synchronized (this) {
+            if (restored) {
+                log.info("Serving {} coupons restored from the snapshot file; skipping the database load",
+                        coupons.size());
+                return;
+            }
+        }
+        reload();
+    }
+
+    @Transactional(readOnly = true)
+    public void reload() {
+        List<CouponSnapshot> loaded = couponRepository.findAll().stream()
+                .map(CouponSnapshot::from)
+                .toList();
+        synchronized (this) {
+            replaceAll(loaded);
+        }
+    }
+
+    // Only called with a file CatalogFileStore has checked against the database; load() then keeps it
+    public synchronized void restore(Collection<CouponSnapshot> snapshots) {
+        replaceAll(snapshots);
+        restored = true;
+    }
+
+    private void replaceAll(Collection<CouponSnapshot> snapshots) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        coupons.clear();
+        liveIds.clear();
+        timeline.clear();
+        changeVersions.clear();
+        tombstones.clear();
+        snapshots.forEach(coupon -> track(coupon, now));
+        publish();
+    }
+
+    // The only date check on the hot path: one comparison against the earliest pending boundary
+    public CatalogSnapshot snapshot() {
+        LocalDateTime next = nextTransition;
+        if (next != null && !LocalDateTime.now(clock).isBefore(next)) {
+            advance();
+        }
+        return current;
+    }
+
+    public Optional<CouponSnapshot> find(Long id) {
+        return snapshot().find(id);
+    }
+
+    // Patches are deferred until the surrounding transaction commits so readers never see rolled-back coupons.
+    // changeVersion is the change-log version the same transaction recorded for the coupon.
+    public void put(Coupon coupon, long changeVersion) {
+        CouponSnapshot snapshot = CouponSnapshot.from(coupon);
+        afterCommit(() -> {
+            synchronized (this) {
+                if (track(snapshot, changeVersion, LocalDateTime.now(clock))) {
+                    publish();
+                }
+            }
+        });
+    }
+
+    // Bulk loads publish one snapshot for the whole set instead of one per coupon
+    public void putAll(Collection<CouponSnapshot> snapshots, Map<Long, Long> changeVersions) {
+        afterCommit(() -> {
+            synchronized (this) {
+                LocalDateTime now = LocalDateTime.now(clock);
+                boolean changed = false;
+                for (CouponSnapshot coupon : snapshots) {
+                    changed |= track(coupon, changeVersions.get(coupon.getId()), now);
+                }
+                if (changed) {
+                    publish();
+                }
+            }
+        });
+    }
+
+    /*
+     * Changes made on other nodes, already committed: applied at once, with one publish for the whole delta.
+     * changeVersions holds the latest polled version per coupon. The coupons were read after that version
+     * committed, but possibly before a later local commit patched the catalog; those reads are dropped here.
+     */
+    public synchronized void apply(Collection<CouponSnapshot> changed, Collection<Long> removedIds,
+                                   Map<Long, Long> changeVersions) {
+        if (changeVersions.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        boolean published = false;
+        for (CouponSnapshot coupon : changed) {
+            published |= track(coupon, changeVersions.get(coupon.getId()), now);
+        }
+        for (Long id : removedIds) {
+            published |= untrack(id, changeVersions.get(id));
+        }
+        // Later polls only carry newer versions, so older removals can no longer be raced
+        long oldest = Collections.min(changeVersions.values());
+        tombstones.values().removeIf(version -> version < oldest);
+        if (published) {
+            publish();
+        }
+    }
+
+    public void remove(Long id, long changeVersion) {
+        afterCommit(() -> {
+            synchronized (this) {
+                if (untrack(id, changeVersion)) {
+                    publish();
+                }
+            }
+        });
+    }
+
+    private synchronized void advance() {
+        boolean changed = false;
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (CouponSnapshot coupon : timeline.pollDue(now)) {
+            // Transitions of replaced or deleted coupon versions are stale and ignored
+            if (coupons.get(coupon.getId()) != coupon) {
+                continue;
+            }
+            boolean live = ValidityTimeline.isLive(coupon, now);
+            changed |= live ? liveIds.add(coupon.getId()) : liveIds.remove(coupon.getId());
+        }
+        if (changed) {
+            publish();
+        } else {
+            nextTransition = timeline.nextTransition();
+        }
+    }
+
+    private boolean track(CouponSnapshot coupon, long changeVersion, LocalDateTime now) {
+        if (isStale(coupon.getId(), changeVersion)) {
+            return false;
+        }
+        changeVersions.put(coupon.getId(), changeVersion);
+        tombstones.remove(coupon.getId());
+        track(coupon, now);
+        return true;
+    }
+
+    private boolean untrack(Long id, long changeVersion) {
+        if (isStale(id, changeVersion)) {
+            return false;
+        }
+        changeVersions.remove(id);
+        tombstones.put(id, changeVersion);
+        liveIds.remove(id);
+        timeline.unschedule(id);
+        return coupons.remove(id) != null;
+    }
+
+    private boolean isStale(Long id, long changeVersion) {
+        Long seen = changeVersions.get(id);
+        if (seen == null) {
+            seen = tombstones.get(id);
+        }
+        return seen != null && seen > changeVersion;
+    }
+
+    private void track(CouponSnapshot coupon, LocalDateTime now) {
+        coupons.put(coupon.getId(), coupon);
+        if (ValidityTimeline.isLive(coupon, now)) {
+            liveIds.add(coupon.getId());
+        } else {
+            liveIds.remove(coupon.getId());
+        }
+        timeline.schedule(coupon, now);
+    }
+
+    private void publish() {
+        current = CatalogSnapshot.of(++version, coupons.values(), liveIds);
+        nextTransition = timeline.nextTransition();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+// Redemption codes are stored and looked up upper-cased, so "save10" and "SAVE10" name the same coupon
+public final class CouponCode {
+
+    public static final int MAX_LENGTH = 32;
+
+    private CouponCode() {
+    }
+
+    // Returns null for input that cannot be a code; such input is rejected without touching any index
+    public static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String trimmed = code.trim();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_LENGTH) {
+            return null;
+        }
+        char[] chars = trimmed.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= 'a' && c <= 'z') {
+                chars[i] = (char) (c - ('a' - 'A'));
+            } else if (!(c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return null;
+            }
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,91 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.service.compiler.CompiledCoupon;
+import com.monk.Commerce.MonkCommerce.service.compiler.CouponCompiler;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.Value;
+import lombok.With;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Immutable, detached copy of a Coupon used by the evaluation hot path
+@Value
+public class CouponSnapshot {
+    Long id;
+    String name;
+    String code;
+    CouponType type;
+    DiscountType discountType;
+    Double discountValue;
+    Double minimumCartTotal;
+    List<Long> applicableProductIds;
+    Integer buyQuantity;
+    Integer getQuantity;
+    List<Long> buyProductIds;
+    List<Long> freeProductIds;
+    Integer maxRepetitions;
+    Integer maxRedemptions;
+    Integer maxRedemptionsPerCustomer;
+    boolean active;
+    LocalDateTime startDate;
+    LocalDateTime endDate;
+    // Engine amounts derived once per coupon version: minor units and basis points (see Money)
+    long discountMinor;
+    long discountBasisPoints;
+    // Long.MIN_VALUE without a minimum, so "total <= minimum" never holds and needs no null check
+    long minimumCartTotalMinor;
+    // Membership structures for the ID lists above, built once per coupon version
+    ProductIdSet applicableProducts;
+    ProductIdSet buyProducts;
+    ProductIdSet freeProducts;
+    // What the engine runs: this version's rules compiled once (see CouponCompiler); derived, so not part of equality
+    @With
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    CompiledCoupon evaluator;
+
+    public static CouponSnapshot from(Coupon coupon) {
+        CouponSnapshot snapshot = new CouponSnapshot(
+                coupon.getId(),
+                coupon.getName(),
+                coupon.getCode(),
+                coupon.getType(),
+                coupon.getDiscountType(),
+                coupon.getDiscountValue(),
+                coupon.getMinimumCartTotal(),
+                copyOf(coupon.getApplicableProductIds()),
+                coupon.getBuyQuantity(),
+                coupon.getGetQuantity(),
+                copyOf(coupon.getBuyProductIds()),
+                copyOf(coupon.getFreeProductIds()),
+                coupon.getMaxRepetitions(),
+                coupon.getMaxRedemptions(),
+                coupon.getMaxRedemptionsPerCustomer(),
+                coupon.getIsActive() == null || coupon.getIsActive(),
+                coupon.getStartDate(),
+                coupon.getEndDate(),
+                Money.toMinor(coupon.getDiscountValue()),
+                Money.toBasisPoints(coupon.getDiscountValue()),
+                coupon.getMinimumCartTotal() != null ? Money.toMinor(coupon.getMinimumCartTotal()) : Long.MIN_VALUE,
+                productIdSetOf(coupon.getApplicableProductIds()),
+                productIdSetOf(coupon.getBuyProductIds()),
+                productIdSetOf(coupon.getFreeProductIds()),
+                null
+        );
+        return snapshot.withEvaluator(CouponCompiler.compile(snapshot));
+    }
+
+    private static ProductIdSet productIdSetOf(List<Long> ids) {
+        return ids == null ? ProductIdSet.empty() : ProductIdSet.of(ids);
+    }
+
+    private static List<Long> copyOf(List<Long> ids) {
+        return ids == null ? List.of() : List.copyOf(ids);
+    }
+}
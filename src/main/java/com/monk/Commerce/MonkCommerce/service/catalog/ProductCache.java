@@ -0,0 +1,86 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.monk.Commerce.MonkCommerce.exception.ProductNotFoundException;
+import com.monk.Commerce.MonkCommerce.model.Product;
+import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ProductCache implements MeterBinder {
+
+    private final ProductRepository productRepository;
+    private final Cache<Long, ProductSnapshot> cache;
+    private final AtomicLong version = new AtomicLong();
+
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${coupon.product-cache.maximum-size:10000}") long maximumSize) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    // Hit/miss/load/eviction counts under cache.* with cache=products
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "products");
+    }
+
+    // Resolves every ID with at most one batched query for the cache misses
+    public Map<Long, ProductSnapshot> resolve(Collection<Long> productIds) {
+        Map<Long, ProductSnapshot> products = cache.getAll(productIds, this::load);
+        if (products.size() < productIds.size()) {
+            List<Long> missing = productIds.stream()
+                    .filter(id -> !products.containsKey(id))
+                    .distinct()
+                    .sorted()
+                    .toList();
+            if (!missing.isEmpty()) {
+                throw new ProductNotFoundException(missing.size() == 1
+                        ? "Product not found with id: " + missing.get(0)
+                        : "Products not found with ids: " + missing);
+            }
+        }
+        return products;
+    }
+
+    // Bumped after the entry is dropped, so a reader that sees the new version also loads the new product
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+        version.incrementAndGet();
+    }
+
+    // Warm start: entries restored from the catalog snapshot file; later product changes invalidate them as usual
+    public void preload(Collection<ProductSnapshot> products) {
+        Map<Long, ProductSnapshot> byId = new HashMap<>(products.size() * 2);
+        products.forEach(product -> byId.put(product.getId(), product));
+        cache.putAll(byId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    private Map<Long, ProductSnapshot> load(Set<? extends Long> productIds) {
+        Map<Long, ProductSnapshot> loaded = new HashMap<>();
+        for (Product product : productRepository.findAllById(new ArrayList<>(productIds))) {
+            loaded.put(product.getId(), ProductSnapshot.from(product));
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,48 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.Product;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// JPA entity listener; beans are looked up lazily because listeners are created with the EntityManagerFactory
+@Component
+@RequiredArgsConstructor
+public class ProductCacheInvalidator {
+
+    private final ObjectProvider<ProductCache> productCache;
+    private final ObjectProvider<CatalogChangeLog> changeLog;
+
+    // Runs during flush, so the change-log row commits with the product row
+    @PostUpdate
+    public void onProductChanged(Product product) {
+        invalidateAfterCommit(product.getId());
+        changeLog.getObject().recordProduct(product.getId(), false);
+    }
+
+    @PostRemove
+    public void onProductRemoved(Product product) {
+        invalidateAfterCommit(product.getId());
+        changeLog.getObject().recordProduct(product.getId(), true);
+    }
+
+    // Invalidating at flush would let a concurrent reader re-cache the old committed row until the next edit
+    private void invalidateAfterCommit(Long productId) {
+        ProductCache cache = productCache.getObject();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(productId);
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/*
+ * Immutable primitive set of product IDs for membership tests on the evaluation hot path. Dense ID ranges
+ * are stored as a bitmap offset by the smallest ID, sparse ones as a sorted long[] searched by bisection;
+ * either way contains(...) neither boxes nor allocates.
+ */
+public final class ProductIdSet {
+
+    private static final ProductIdSet EMPTY = new ProductIdSet(new long[0], null, 0L);
+
+    // sorted always holds the IDs; when bitmap is present it answers contains(...) instead of the bisection
+    private final long[] sorted;
+    private final long[] bitmap;
+    private final long offset;
+
+    private ProductIdSet(long[] sorted, long[] bitmap, long offset) {
+        this.sorted = sorted;
+        this.bitmap = bitmap;
+        this.offset = offset;
+    }
+
+    public static ProductIdSet empty() {
+        return EMPTY;
+    }
+
+    public static ProductIdSet of(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return EMPTY;
+        }
+        long[] ids = productIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        long min = ids[0];
+        long range = ids[ids.length - 1] - min + 1;
+        // A bitmap wins once it needs no more words than the sorted array has entries
+        if (range > 0 && (range + 63) / 64 <= ids.length) {
+            long[] words = new long[(int) ((range + 63) / 64)];
+            for (long id : ids) {
+                long bit = id - min;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            return new ProductIdSet(ids, words, min);
+        }
+        return new ProductIdSet(ids, null, 0L);
+    }
+
+    public boolean contains(long productId) {
+        if (bitmap != null) {
+            long bit = productId - offset;
+            return bit >= 0 && (bit >>> 6) < bitmap.length && (bitmap[(int) (bit >>> 6)] & (1L << bit)) != 0;
+        }
+        return Arrays.binarySearch(sorted, productId) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return sorted.length == 0;
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ProductIdSet other && Arrays.equals(sorted, other.sorted);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(sorted);
+    }
+}
@@ -0,0 +1,20 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import com.monk.Commerce.MonkCommerce.model.Product;
+import lombok.Value;
+
+@Value
+public class ProductSnapshot {
+    Long id;
+    String name;
+    Double price;
+
+    public static ProductSnapshot from(Product product) {
+        return new ProductSnapshot(product.getId(), product.getName(), product.getPrice());
+    }
+
+    // Detached reference used for cart lines; only the ID is written when the cart is persisted
+    public Product toProduct() {
+        return new Product(id, name, price, null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Cart-wise coupons sorted by minimumCartTotal; qualifying coupons are always a prefix of the array
+public class ThresholdIndex {
+
+    private static final ThresholdIndex EMPTY = new ThresholdIndex(new long[0], new CouponSnapshot[0]);
+
+    private final long[] thresholds;
+    private final CouponSnapshot[] coupons;
+
+    private ThresholdIndex(long[] thresholds, CouponSnapshot[] coupons) {
+        this.thresholds = thresholds;
+        this.coupons = coupons;
+    }
+
+    public static ThresholdIndex empty() {
+        return EMPTY;
+    }
+
+    public static ThresholdIndex of(Collection<CouponSnapshot> cartWiseCoupons) {
+        CouponSnapshot[] sorted = cartWiseCoupons.stream()
+                .sorted(Comparator.comparingLong(CouponSnapshot::getMinimumCartTotalMinor)
+                        .thenComparing(CouponSnapshot::getId))
+                .toArray(CouponSnapshot[]::new);
+        long[] thresholds = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            thresholds[i] = sorted[i].getMinimumCartTotalMinor();
+        }
+        return new ThresholdIndex(thresholds, sorted);
+    }
+
+    // Coupons whose minimum is strictly below the cart total (minor units), matching CartWiseStrategy's rule
+    public List<CouponSnapshot> qualifying(long cartTotal) {
+        return Arrays.asList(coupons).subList(0, firstNotBelow(cartTotal));
+    }
+
+    public int size() {
+        return coupons.length;
+    }
+
+    private int firstNotBelow(long cartTotal) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] < cartTotal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,130 @@
+package com.monk.Commerce.MonkCommerce.service.catalog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/*
+ * Priority queue of upcoming start/end boundaries. Not thread-safe; CouponCatalog guards it with its own lock.
+ * Re-scheduling or removing a coupon leaves its old boundaries in the queue, where they are skipped when they
+ * come up; once they outnumber the current ones they are purged in one pass, so frequent edits cannot grow the
+ * queue without bound.
+ */
+public class ValidityTimeline {
+
+    private static final int MIN_PURGE = 64;
+
+    private final PriorityQueue<Transition> transitions =
+            new PriorityQueue<>(Comparator.comparing(Transition::at));
+    // Boundaries still queued for the currently scheduled version of each coupon
+    private final Map<Long, Pending> pending = new HashMap<>();
+    private long generation;
+    private int stale;
+
+    public static boolean isLive(CouponSnapshot coupon, LocalDateTime now) {
+        if (!coupon.isActive()) {
+            return false;
+        }
+        if (coupon.getStartDate() != null && now.isBefore(coupon.getStartDate())) {
+            return false;
+        }
+        return coupon.getEndDate() == null || !now.isAfter(coupon.getEndDate());
+    }
+
+    // Replaces whatever was scheduled for the coupon before
+    public void schedule(CouponSnapshot coupon, LocalDateTime now) {
+        unschedule(coupon.getId());
+        if (!coupon.isActive()) {
+            return;
+        }
+        long current = ++generation;
+        int count = 0;
+        if (coupon.getStartDate() != null && now.isBefore(coupon.getStartDate())) {
+            transitions.add(new Transition(coupon.getStartDate(), coupon, current));
+            count++;
+        }
+        // A coupon is still valid at endDate itself, so it drops out one tick later
+        if (coupon.getEndDate() != null && !now.isAfter(coupon.getEndDate())) {
+            transitions.add(new Transition(coupon.getEndDate().plusNanos(1), coupon, current));
+            count++;
+        }
+        if (count > 0) {
+            pending.put(coupon.getId(), new Pending(current, count));
+        }
+    }
+
+    public void unschedule(Long couponId) {
+        Pending previous = pending.remove(couponId);
+        if (previous != null) {
+            stale += previous.remaining;
+            purgeIfMostlyStale();
+        }
+    }
+
+    public void clear() {
+        transitions.clear();
+        pending.clear();
+        stale = 0;
+    }
+
+    public LocalDateTime nextTransition() {
+        while (!transitions.isEmpty() && !isCurrent(transitions.peek())) {
+            transitions.poll();
+            stale--;
+        }
+        Transition head = transitions.peek();
+        return head != null ? head.at() : null;
+    }
+
+    // Removes and returns the coupons whose boundary has been reached; callers re-check liveness
+    public List<CouponSnapshot> pollDue(LocalDateTime now) {
+        List<CouponSnapshot> due = new ArrayList<>();
+        while (!transitions.isEmpty() && !now.isBefore(transitions.peek().at())) {
+            Transition transition = transitions.poll();
+            if (!isCurrent(transition)) {
+                stale--;
+                continue;
+            }
+            due.add(transition.coupon());
+            Long id = transition.coupon().getId();
+            if (--pending.get(id).remaining == 0) {
+                pending.remove(id);
+            }
+        }
+        return due;
+    }
+
+    // Queued boundaries, superseded ones included
+    public int size() {
+        return transitions.size();
+    }
+
+    private boolean isCurrent(Transition transition) {
+        Pending current = pending.get(transition.coupon().getId());
+        return current != null && current.generation == transition.generation();
+    }
+
+    private void purgeIfMostlyStale() {
+        if (stale >= MIN_PURGE && stale > transitions.size() - stale) {
+            transitions.removeIf(transition -> !isCurrent(transition));
+            stale = 0;
+        }
+    }
+
+    private record Transition(LocalDateTime at, CouponSnapshot coupon, long generation) {
+    }
+
+    private static final class Pending {
+        private final long generation;
+        private int remaining;
+
+        private Pending(long generation, int remaining) {
+            this.generation = generation;
+            this.remaining = remaining;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.monk.Commerce.MonkCommerce.service.changelog;
+
+import com.monk.Commerce.MonkCommerce.model.ChangedEntity;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Writes catalog_changes rows in the caller's transaction, so a change is logged if and only if it commits.
+ * Versions come from the single catalog_version row: bumping it locks the row until the transaction ends, so
+ * writers take versions one after another and commit them in version order. Rolled-back bumps are undone with
+ * their transaction, which keeps committed versions gap-free. Pollers can therefore read "version > last"
+ * without missing late commits, and treat a gap as entries pruned before they were read.
+ *
+ * Plain JDBC rather than repositories: product changes are recorded from a JPA entity listener during flush,
+ * where the EntityManager must not be used.
+ */
+@Component
+public class CatalogChangeLog {
+
+    private static final String INSERT = "insert into catalog_changes"
+            + " (version, entity_type, entity_id, deleted, origin, changed_at) values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public CatalogChangeLog(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // Returns the version given to the change, which CouponCatalog uses to order it against polled changes
+    public long recordCoupon(Long couponId, boolean deleted) {
+        return record(ChangedEntity.COUPON, List.of(couponId), deleted);
+    }
+
+    // Returns each coupon's version; the IDs take consecutive versions in iteration order
+    public Map<Long, Long> recordCoupons(Collection<Long> couponIds) {
+        long version = record(ChangedEntity.COUPON, couponIds, false);
+        Map<Long, Long> versions = new HashMap<>();
+        for (Long id : couponIds) {
+            versions.put(id, version++);
+        }
+        return versions;
+    }
+
+    public void recordProduct(Long productId, boolean deleted) {
+        record(ChangedEntity.PRODUCT, List.of(productId), deleted);
+    }
+
+    // Latest committed version; 0 before the first change
+    public long currentVersion() {
+        List<Long> versions = jdbcTemplate.queryForList("select version from catalog_version where id = 1", Long.class);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    // Joins the caller's transaction; outside one, the bump and the rows still commit together.
+    // Returns the first of the versions given to the IDs.
+    private long record(ChangedEntity type, Collection<Long> ids, boolean deleted) {
+        if (ids.isEmpty()) {
+            return 0L;
+        }
+        return transactionTemplate.execute(status -> {
+            if (bumpVersion(ids.size()) == 0) {
+                createCounter();
+                bumpVersion(ids.size());
+            }
+            long first = jdbcTemplate.queryForObject("select version from catalog_version where id = 1", Long.class)
+                    - ids.size() + 1;
+            long version = first;
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                rows.add(new Object[]{version++, type.name(), id, deleted, nodeId, now});
+            }
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            return first;
+        });
+    }
+
+    private int bumpVersion(int count) {
+        return jdbcTemplate.update("update catalog_version set version = version + ? where id = 1", count);
+    }
+
+    private void createCounter() {
+        try {
+            jdbcTemplate.update("insert into catalog_version (id, version) values (1, 0)");
+        } catch (DuplicateKeyException e) {
+            // Another node created it first; its insert holds the row until it commits
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.monk.Commerce.MonkCommerce.service.changelog;
+
+import com.monk.Commerce.MonkCommerce.model.CatalogChange;
+import com.monk.Commerce.MonkCommerce.model.ChangedEntity;
+import com.monk.Commerce.MonkCommerce.repository.CatalogChangeRepository;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Applies other nodes' catalog changes to this node's in-memory state: coupons are re-read by ID and patched into
+ * the catalog, tombstones remove them, and product changes drop the cached product. Catalogs converge within one
+ * poll interval plus the time to apply. A gap in versions means entries were pruned before this node read them;
+ * it then falls back to a full reload.
+ */
+@Slf4j
+@Component
+public class CatalogChangePoller {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final Duration PRUNE_EVERY = Duration.ofHours(1);
+
+    private final CatalogChangeLog changeLog;
+    private final CatalogChangeRepository changeRepository;
+    private final CouponRepository couponRepository;
+    private final CouponCatalog couponCatalog;
+    private final ProductCache productCache;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final Clock clock;
+    private final Duration interval;
+    private final Duration retention;
+    private ScheduledExecutorService poller;
+    private volatile long appliedVersion;
+    private Instant lastPrune = Instant.EPOCH;
+
+    public CatalogChangePoller(CatalogChangeLog changeLog,
+                               CatalogChangeRepository changeRepository,
+                               CouponRepository couponRepository,
+                               CouponCatalog couponCatalog,
+                               ProductCache productCache,
+                               PlatformTransactionManager transactionManager,
+                               Clock clock,
+                               @Value("${coupon.change-log.poll-interval:1s}") Duration interval,
+                               @Value("${coupon.change-log.retention:7d}") Duration retention) {
+        this.changeLog = changeLog;
+        this.changeRepository = changeRepository;
+        this.couponRepository = couponRepository;
+        this.couponCatalog = couponCatalog;
+        this.productCache = productCache;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.interval = interval;
+        this.retention = retention;
+    }
+
+    // Taken before the startup load reads the database, or the snapshot file is checked against it, so every
+    // change either might miss is polled again
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void captureVersion() {
+        appliedVersion = changeLog.currentVersion();
+    }
+
+    // Runs after CouponCatalog.load, so a poll never races the startup load
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void start() {
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-change-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollSafely, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (poller != null) {
+            poller.shutdown();
+            poller.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public long appliedVersion() {
+        return appliedVersion;
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+            pruneIfDue();
+        } catch (RuntimeException e) {
+            // The next poll retries from the same version
+            log.warn("Catalog change poll failed at version {}", appliedVersion, e);
+        }
+    }
+
+    public void poll() {
+        List<CatalogChange> changes;
+        do {
+            long after = appliedVersion;
+            changes = readTransaction.execute(status ->
+                    changeRepository.findByVersionGreaterThanOrderByVersion(after, Limit.of(BATCH_SIZE)));
+            if (changes.isEmpty()) {
+                return;
+            }
+            if (changes.get(0).getVersion() != after + 1) {
+                resync(after, changes.get(0).getVersion());
+                return;
+            }
+            apply(changes);
+            appliedVersion = changes.get(changes.size() - 1).getVersion();
+        } while (changes.size() == BATCH_SIZE);
+    }
+
+    private void apply(List<CatalogChange> changes) {
+        // Only the latest change per coupon matters; later entries overwrite earlier ones
+        Map<Long, CatalogChange> coupons = new LinkedHashMap<>();
+        for (CatalogChange change : changes) {
+            if (change.getOrigin().equals(changeLog.nodeId())) {
+                continue;
+            }
+            if (change.getEntityType() == ChangedEntity.COUPON) {
+                coupons.put(change.getEntityId(), change);
+            } else {
+                productCache.invalidate(change.getEntityId());
+            }
+        }
+        if (coupons.isEmpty()) {
+            return;
+        }
+
+        List<Long> changedIds = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        Map<Long, Long> versions = new HashMap<>();
+        for (CatalogChange change : coupons.values()) {
+            (change.getDeleted() ? removedIds : changedIds).add(change.getEntityId());
+            versions.put(change.getEntityId(), change.getVersion());
+        }
+        // A coupon deleted since its change was logged is missing here; its tombstone follows in a later entry.
+        // One updated locally while this read ran is newer in the catalog; the version check keeps it.
+        List<CouponSnapshot> changed = changedIds.isEmpty() ? List.of() : readTransaction.execute(status ->
+                couponRepository.findAllById(changedIds).stream().map(CouponSnapshot::from).toList());
+        couponCatalog.apply(changed, removedIds, versions);
+    }
+
+    private void resync(long after, long next) {
+        log.warn("Catalog change log skipped from version {} to {}; reloading the catalog", after, next);
+        long version = changeLog.currentVersion();
+        couponCatalog.reload();
+        productCache.invalidateAll();
+        appliedVersion = version;
+    }
+
+    private void pruneIfDue() {
+        Instant now = clock.instant();
+        if (Duration.between(lastPrune, now).compareTo(PRUNE_EVERY) < 0) {
+            return;
+        }
+        lastPrune = now;
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(retention);
+        Integer pruned = writeTransaction.execute(status -> changeRepository.deleteOlderThan(cutoff));
+        if (pruned != null && pruned > 0) {
+            log.info("Pruned {} catalog change log entries older than {}", pruned, cutoff);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+// maxRepetitions arrives folded: Integer.MAX_VALUE when the coupon sets no positive limit
+final class BxGyDeal implements CompiledCoupon {
+
+    private final ProductIdSet buyProducts;
+    private final ProductIdSet freeProducts;
+    private final int buyQuantity;
+    private final int getQuantity;
+    private final int maxRepetitions;
+
+    BxGyDeal(ProductIdSet buyProducts, ProductIdSet freeProducts, int buyQuantity, int getQuantity,
+             int maxRepetitions) {
+        this.buyProducts = buyProducts;
+        this.freeProducts = freeProducts;
+        this.buyQuantity = buyQuantity;
+        this.getQuantity = getQuantity;
+        this.maxRepetitions = maxRepetitions;
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        int totalBuyQuantity = 0;
+        for (int i = 0; i < cart.size(); i++) {
+            if (buyProducts.contains(cart.productId(i))) {
+                totalBuyQuantity += cart.quantity(i);
+            }
+        }
+        if (totalBuyQuantity < buyQuantity) {
+            return DiscountPlan.none();
+        }
+
+        int remainingFreeQuantity = Math.min(totalBuyQuantity / buyQuantity, maxRepetitions) * getQuantity;
+        long[] lineDiscounts = new long[cart.size()];
+        long totalDiscount = 0L;
+        for (int i = 0; i < cart.size() && remainingFreeQuantity > 0; i++) {
+            if (freeProducts.contains(cart.productId(i))) {
+                int freeCount = Math.min(remainingFreeQuantity, cart.quantity(i));
+                long freeDiscount = cart.catalogUnitPrice(i) * freeCount;
+                lineDiscounts[i] = freeDiscount;
+                totalDiscount += freeDiscount;
+                remainingFreeQuantity -= freeCount;
+            }
+        }
+
+        if (totalDiscount == 0) {
+            return DiscountPlan.none();
+        }
+        return new DiscountPlan(totalDiscount, lineDiscounts, CouponCompiler.BXGY_REASON);
+    }
+
+    @Override
+    public long upperBound(PricedCart cart) {
+        long freeTotal = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (freeProducts.contains(cart.productId(i))) {
+                freeTotal += cart.catalogUnitPrice(i) * cart.quantity(i);
+            }
+        }
+        return freeTotal;
+    }
+}
@@ -0,0 +1,32 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+final class CartWiseFixed implements CompiledCoupon {
+
+    private final long minimumCartTotal;
+    private final long discount;
+
+    CartWiseFixed(long minimumCartTotal, long discount) {
+        this.minimumCartTotal = minimumCartTotal;
+        this.discount = discount;
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        long totalDiscount = upperBound(cart);
+        if (totalDiscount <= 0) {
+            return DiscountPlan.none();
+        }
+        return new DiscountPlan(totalDiscount, Money.allocate(totalDiscount, cart.lineTotals()),
+                CouponCompiler.CART_WISE_REASON);
+    }
+
+    @Override
+    public long upperBound(PricedCart cart) {
+        long total = cart.total();
+        return total > minimumCartTotal ? Math.min(discount, total) : 0L;
+    }
+}
@@ -0,0 +1,32 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+final class CartWisePercentage implements CompiledCoupon {
+
+    private final long minimumCartTotal;
+    private final long basisPoints;
+
+    CartWisePercentage(long minimumCartTotal, long basisPoints) {
+        this.minimumCartTotal = minimumCartTotal;
+        this.basisPoints = basisPoints;
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        long totalDiscount = upperBound(cart);
+        if (totalDiscount <= 0) {
+            return DiscountPlan.none();
+        }
+        return new DiscountPlan(totalDiscount, Money.allocate(totalDiscount, cart.lineTotals()),
+                CouponCompiler.CART_WISE_REASON);
+    }
+
+    @Override
+    public long upperBound(PricedCart cart) {
+        long total = cart.total();
+        return total > minimumCartTotal ? Money.percentage(total, basisPoints) : 0L;
+    }
+}
@@ -0,0 +1,13 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+// Evaluator specialized for one coupon version; plans match the coupon type's strategy to the minor unit
+public interface CompiledCoupon {
+
+    DiscountPlan evaluate(PricedCart cart);
+
+    // Never below evaluate(cart).getTotalDiscountMinor() and never above the strategy's bound
+    long upperBound(PricedCart cart);
+}
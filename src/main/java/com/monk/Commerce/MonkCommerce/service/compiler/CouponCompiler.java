@@ -0,0 +1,65 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+
+/*
+ * Turns a coupon version into a CompiledCoupon. Everything the strategies re-read on every evaluation is settled
+ * here once: the type and discount-type branches pick the evaluator class, amounts become final primitive fields,
+ * and a missing repetition limit becomes Integer.MAX_VALUE. Each evaluator class only ever sees one coupon shape,
+ * so its evaluate call site stays monomorphic for the JIT.
+ *
+ * The strategies in service.strategy remain the reference implementation; CombinedTest checks that both agree.
+ */
+public final class CouponCompiler {
+
+    // Same reasons the strategies report
+    static final String CART_WISE_REASON = "Cart total meets minimum requirement";
+    static final String PRODUCT_WISE_REASON = "Cart contains applicable products";
+    static final String BXGY_REASON = "BxGy conditions met";
+
+    private CouponCompiler() {
+    }
+
+    public static CompiledCoupon compile(CouponSnapshot coupon) {
+        if (coupon.getType() == null) {
+            return NeverApplicable.INSTANCE;
+        }
+        boolean percentage = coupon.getDiscountType() == DiscountType.PERCENTAGE;
+        return switch (coupon.getType()) {
+            case CART_WISE -> {
+                if (percentage) {
+                    yield coupon.getDiscountBasisPoints() == 0 ? NeverApplicable.INSTANCE
+                            : new CartWisePercentage(coupon.getMinimumCartTotalMinor(), coupon.getDiscountBasisPoints());
+                }
+                yield coupon.getDiscountMinor() == 0 ? NeverApplicable.INSTANCE
+                        : new CartWiseFixed(coupon.getMinimumCartTotalMinor(), coupon.getDiscountMinor());
+            }
+            case PRODUCT_WISE -> {
+                if (coupon.getApplicableProducts().isEmpty()) {
+                    yield NeverApplicable.INSTANCE;
+                }
+                if (percentage) {
+                    yield coupon.getDiscountBasisPoints() == 0 ? NeverApplicable.INSTANCE
+                            : new ProductWisePercentage(coupon.getApplicableProducts(), coupon.getDiscountBasisPoints());
+                }
+                yield coupon.getDiscountMinor() == 0 ? NeverApplicable.INSTANCE
+                        : new ProductWiseFixed(coupon.getApplicableProducts(), coupon.getDiscountMinor());
+            }
+            case BXGY -> compileBxGy(coupon);
+        };
+    }
+
+    // Quantities are validated on write; a coupon that somehow lacks them never applies instead of failing per request
+    private static CompiledCoupon compileBxGy(CouponSnapshot coupon) {
+        Integer buyQuantity = coupon.getBuyQuantity();
+        Integer getQuantity = coupon.getGetQuantity();
+        if (coupon.getBuyProducts().isEmpty() || coupon.getFreeProducts().isEmpty()
+                || buyQuantity == null || buyQuantity <= 0 || getQuantity == null || getQuantity <= 0) {
+            return NeverApplicable.INSTANCE;
+        }
+        Integer maxRepetitions = coupon.getMaxRepetitions();
+        return new BxGyDeal(coupon.getBuyProducts(), coupon.getFreeProducts(), buyQuantity, getQuantity,
+                maxRepetitions != null && maxRepetitions > 0 ? maxRepetitions : Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,23 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+// Coupons whose rules can never produce a discount: no type, no products to match, or a zero value
+final class NeverApplicable implements CompiledCoupon {
+
+    static final NeverApplicable INSTANCE = new NeverApplicable();
+
+    private NeverApplicable() {
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        return DiscountPlan.none();
+    }
+
+    @Override
+    public long upperBound(PricedCart cart) {
+        return 0L;
+    }
+}
@@ -0,0 +1,45 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+// Fixed amount off each matching unit, capped at the line total
+final class ProductWiseFixed implements CompiledCoupon {
+
+    private final ProductIdSet products;
+    private final long discountPerUnit;
+
+    ProductWiseFixed(ProductIdSet products, long discountPerUnit) {
+        this.products = products;
+        this.discountPerUnit = discountPerUnit;
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        long[] lineDiscounts = new long[cart.size()];
+        long totalDiscount = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (products.contains(cart.productId(i))) {
+                long lineDiscount = Math.min(discountPerUnit * cart.quantity(i), cart.lineTotal(i));
+                lineDiscounts[i] = lineDiscount;
+                totalDiscount += lineDiscount;
+            }
+        }
+        if (totalDiscount == 0) {
+            return DiscountPlan.none();
+        }
+        return new DiscountPlan(totalDiscount, lineDiscounts, CouponCompiler.PRODUCT_WISE_REASON);
+    }
+
+    @Override
+    public long upperBound(PricedCart cart) {
+        long matchingTotal = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (products.contains(cart.productId(i))) {
+                matchingTotal += cart.lineTotal(i);
+            }
+        }
+        return matchingTotal;
+    }
+}
@@ -0,0 +1,46 @@
+package com.monk.Commerce.MonkCommerce.service.compiler;
+
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+final class ProductWisePercentage implements CompiledCoupon {
+
+    private final ProductIdSet products;
+    private final long basisPoints;
+
+    ProductWisePercentage(ProductIdSet products, long basisPoints) {
+        this.products = products;
+        this.basisPoints = basisPoints;
+    }
+
+    @Override
+    public DiscountPlan evaluate(PricedCart cart) {
+        long[] lineDiscounts = new long[cart.size()];
+        long totalDiscount = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (products.contains(cart.productId(i))) {
+                long lineDiscount = Money.percentage(cart.lineTotal(i), basisPoints);
+                lineDiscounts[i] = lineDiscount;
+                totalDiscount += lineDiscount;
+            }
+        }
+        if (totalDiscount == 0) {
+            return DiscountPlan.none();
+        }
+        return new DiscountPlan(totalDiscount, lineDiscounts, CouponCompiler.PRODUCT_WISE_REASON);
+    }
+
+    // Rounded per line, like evaluate; the rounded aggregate can be lower than the discount itself
+    @Override
+    public long upperBound(PricedCart cart) {
+        long bound = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (products.contains(cart.productId(i))) {
+                bound += Money.percentage(cart.lineTotal(i), basisPoints);
+            }
+        }
+        return bound;
+    }
+}
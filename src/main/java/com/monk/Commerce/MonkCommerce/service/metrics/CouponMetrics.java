@@ -0,0 +1,159 @@
+package com.monk.Commerce.MonkCommerce.service.metrics;
+
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Engine metrics. Every meter is registered up front so the hot path never goes through a registry lookup;
+ * per-coupon work only touches primitive fields of a request-local Evaluation, which publishes once per request.
+ * Evaluation times are sampled: reading the clock around every candidate costs as much as a cheap evaluator.
+ */
+@Component
+public class CouponMetrics {
+
+    public enum Operation {
+        APPLICABLE, BATCH, BEST, STACK, APPLY, SESSION;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private static final CouponType[] TYPES = CouponType.values();
+    // Every 16th candidate of a type is timed, starting with the first; must stay a power of two
+    private static final int SAMPLE_MASK = 15;
+
+    private final Map<CouponType, Timer> evaluationTimers = new EnumMap<>(CouponType.class);
+    private final Map<Operation, DistributionSummary> evaluatedSummaries = new EnumMap<>(Operation.class);
+    private final Map<Operation, DistributionSummary> matchedSummaries = new EnumMap<>(Operation.class);
+    private final Counter productLookups;
+    private final Counter codeLookupsFound;
+    private final Counter codeLookupsUnknown;
+    private final Timer cartPersistence;
+    private final Counter droppedCarts;
+    private final MeterRegistry registry;
+
+    public CouponMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (CouponType type : TYPES) {
+            evaluationTimers.put(type, Timer.builder("coupon.evaluation")
+                    .description("Time spent evaluating coupons of one type within a request")
+                    .tag("type", type.name())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (Operation operation : Operation.values()) {
+            evaluatedSummaries.put(operation, DistributionSummary.builder("coupon.candidates.evaluated")
+                    .description("Coupons evaluated per request")
+                    .tag("operation", operation.tag)
+                    .register(registry));
+            matchedSummaries.put(operation, DistributionSummary.builder("coupon.candidates.matched")
+                    .description("Evaluated coupons that applied to the cart, per request")
+                    .tag("operation", operation.tag)
+                    .register(registry));
+        }
+        productLookups = Counter.builder("coupon.product.lookups")
+                .description("Product IDs resolved while building carts")
+                .register(registry);
+        codeLookupsFound = codeLookups(registry, "found");
+        codeLookupsUnknown = codeLookups(registry, "unknown");
+        cartPersistence = Timer.builder("coupon.cart.persistence")
+                .description("Time spent saving carts with an applied coupon")
+                .publishPercentileHistogram()
+                .register(registry);
+        droppedCarts = Counter.builder("coupon.cart.persistence.dropped")
+                .description("Written-behind carts that could not be saved after retries")
+                .register(registry);
+    }
+
+    public Evaluation startEvaluation(Operation operation) {
+        return new Evaluation(operation);
+    }
+
+    public void recordProductLookups(int productCount) {
+        productLookups.increment(productCount);
+    }
+
+    // A climbing unknown count is what code guessing looks like
+    public void recordCodeLookup(boolean found) {
+        (found ? codeLookupsFound : codeLookupsUnknown).increment();
+    }
+
+    private static Counter codeLookups(MeterRegistry registry, String result) {
+        return Counter.builder("coupon.code.lookups")
+                .description("Coupon code lookups, answered from the in-memory code index")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    // One sample per synchronous save, or per batch when carts are written behind
+    public <T> T timeCartPersistence(Supplier<T> save) {
+        return cartPersistence.record(save);
+    }
+
+    public void recordDroppedCart() {
+        droppedCarts.increment();
+    }
+
+    public void gaugeCartQueue(Collection<?> queue) {
+        Gauge.builder("coupon.cart.queue.size", queue, Collection::size)
+                .description("Carts waiting to be written behind")
+                .register(registry);
+    }
+
+    // Request-scoped and single-threaded: accumulates plain longs and publishes them in finish()
+    public final class Evaluation {
+        private final Operation operation;
+        private final long[] sampledNanosByType = new long[TYPES.length];
+        private final int[] evaluatedByType = new int[TYPES.length];
+        private int evaluated;
+        private int matched;
+
+        private Evaluation(Operation operation) {
+            this.operation = operation;
+        }
+
+        public DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart) {
+            int type = coupon.getType().ordinal();
+            DiscountPlan plan;
+            if ((evaluatedByType[type]++ & SAMPLE_MASK) == 0) {
+                long start = System.nanoTime();
+                plan = coupon.getEvaluator().evaluate(cart);
+                sampledNanosByType[type] += System.nanoTime() - start;
+            } else {
+                plan = coupon.getEvaluator().evaluate(cart);
+            }
+            evaluated++;
+            if (plan.isApplicable()) {
+                matched++;
+            }
+            return plan;
+        }
+
+        public void finish() {
+            for (CouponType type : TYPES) {
+                int count = evaluatedByType[type.ordinal()];
+                if (count > 0) {
+                    // Scale the sampled time up to every candidate of the type
+                    int sampled = (count + SAMPLE_MASK) / (SAMPLE_MASK + 1);
+                    long nanos = sampledNanosByType[type.ordinal()] * count / sampled;
+                    evaluationTimers.get(type).record(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            evaluatedSummaries.get(operation).record(evaluated);
+            matchedSummaries.get(operation).record(matched);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.monk.Commerce.MonkCommerce.service.money;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/*
+ * Fixed-point money for the evaluation engine: amounts are longs in minor units (cents) and percentages are
+ * longs in basis points. Doubles only exist at the JSON / persistence boundary, via toMinor and toMajor.
+ * Every division rounds with ROUNDING; apart from the BigInteger overflow fallback nothing here allocates.
+ */
+public final class Money {
+
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+    private static final int SCALE = 2;
+    private static final long MINOR_PER_MAJOR = 100L;
+    private static final long BASIS_POINTS_PER_WHOLE = 10_000L;
+
+    private Money() {
+    }
+
+    public static long toMinor(Double major) {
+        if (major == null) {
+            return 0L;
+        }
+        return BigDecimal.valueOf(major).setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    public static double toMajor(long minor) {
+        return (double) minor / MINOR_PER_MAJOR;
+    }
+
+    // 12.5 (%) -> 1250 basis points
+    public static long toBasisPoints(Double percentage) {
+        if (percentage == null) {
+            return 0L;
+        }
+        return BigDecimal.valueOf(percentage).setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    public static long percentage(long amount, long basisPoints) {
+        return multiplyDivide(amount, basisPoints, BASIS_POINTS_PER_WHOLE);
+    }
+
+    /*
+     * Splits total across lines in proportion to weights so that the parts add up to total exactly. Each part
+     * is the difference of two consecutive rounded cumulative shares, which keeps every part within one minor
+     * unit of its exact proportional value.
+     */
+    public static long[] allocate(long total, long[] weights) {
+        long[] parts = new long[weights.length];
+        long weightSum = 0L;
+        for (long weight : weights) {
+            weightSum += weight;
+        }
+        if (weightSum == 0L) {
+            return parts;
+        }
+        long cumulativeWeight = 0L;
+        long allocated = 0L;
+        for (int i = 0; i < weights.length; i++) {
+            cumulativeWeight += weights[i];
+            long cumulativeShare = multiplyDivide(total, cumulativeWeight, weightSum);
+            parts[i] = cumulativeShare - allocated;
+            allocated = cumulativeShare;
+        }
+        return parts;
+    }
+
+    // a * b / divisor for non-negative a and b and a positive divisor, rounded with ROUNDING
+    static long multiplyDivide(long a, long b, long divisor) {
+        if (Math.multiplyHigh(a, b) != 0L || a * b < 0L) {
+            return new BigDecimal(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)))
+                    .divide(BigDecimal.valueOf(divisor), 0, ROUNDING)
+                    .longValueExact();
+        }
+        long product = a * b;
+        long quotient = product / divisor;
+        long remainder = product % divisor;
+        if (remainder == 0L) {
+            return quotient;
+        }
+        return switch (ROUNDING) {
+            case HALF_UP -> remainder >= divisor - remainder ? quotient + 1 : quotient;
+            case HALF_DOWN -> remainder > divisor - remainder ? quotient + 1 : quotient;
+            case HALF_EVEN -> remainder > divisor - remainder
+                    || (remainder == divisor - remainder && (quotient & 1L) == 1L) ? quotient + 1 : quotient;
+            case UP, CEILING -> quotient + 1;
+            case DOWN, FLOOR -> quotient;
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+    }
+}
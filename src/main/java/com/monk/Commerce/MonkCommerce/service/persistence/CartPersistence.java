@@ -0,0 +1,200 @@
+package com.monk.Commerce.MonkCommerce.service.persistence;
+
+import com.monk.Commerce.MonkCommerce.model.Cart;
+import com.monk.Commerce.MonkCommerce.model.CartItem;
+import com.monk.Commerce.MonkCommerce.repository.CartRepository;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.service.metrics.CouponMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Persists carts with an applied coupon. SYNC saves and flushes in the caller's transaction. ASYNC (write-behind)
+ * queues a copy of the cart and returns at once; a single writer thread drains the queue and saves up to batchSize
+ * carts per transaction, which with pooled sequence IDs lets Hibernate send JDBC batch inserts. A full queue falls
+ * back to a synchronous save so callers slow down instead of losing carts, and shutdown drains whatever is still
+ * queued.
+ *
+ * A failed batch is retried with backoff, then written one cart at a time so a single bad cart cannot sink the
+ * others. Carts that still fail are logged and counted in coupon.cart.persistence.dropped.
+ */
+@Slf4j
+@Component
+public class CartPersistence {
+
+    public enum Durability {
+        SYNC, ASYNC
+    }
+
+    private static final long POLL_INTERVAL_MS = 100L;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 100L;
+
+    private final CartRepository cartRepository;
+    private final CouponRepository couponRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CouponMetrics metrics;
+    private final Durability durability;
+    private final int batchSize;
+    private final BlockingQueue<Cart> queue;
+    private final Thread writer;
+    // persist holds the read lock from the running check through the offer, so once shutdown has taken the write
+    // lock no cart can be queued behind the writer's final drain
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    public CartPersistence(CartRepository cartRepository,
+                           CouponRepository couponRepository,
+                           PlatformTransactionManager transactionManager,
+                           CouponMetrics metrics,
+                           @Value("${coupon.cart-persistence.durability:SYNC}") Durability durability,
+                           @Value("${coupon.cart-persistence.queue-capacity:10000}") int queueCapacity,
+                           @Value("${coupon.cart-persistence.batch-size:50}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.couponRepository = couponRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        metrics.gaugeCartQueue(queue);
+        if (durability == Durability.ASYNC) {
+            writer = new Thread(this::drainLoop, "cart-write-behind");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    // The flush is what sends the INSERT; without it the timer would only measure save() registering the cart
+    public void persist(Cart cart) {
+        if (durability == Durability.ASYNC && enqueue(cart)) {
+            return;
+        }
+        metrics.timeCartPersistence(() -> cartRepository.saveAndFlush(cart));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shutdownLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            shutdownLock.writeLock().unlock();
+        }
+        if (writer != null) {
+            writer.join();
+        }
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            Cart first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            List<Cart> batch = new ArrayList<>(batchSize);
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+        }
+    }
+
+    // The writer gets its own copy: the caller goes on to read the cart while the writer assigns and resets IDs
+    private boolean enqueue(Cart cart) {
+        shutdownLock.readLock().lock();
+        try {
+            return running && queue.offer(detachedCopy(cart));
+        } finally {
+            shutdownLock.readLock().unlock();
+        }
+    }
+
+    private static Cart detachedCopy(Cart cart) {
+        Cart copy = new Cart();
+        copy.setTotalAmount(cart.getTotalAmount());
+        copy.setTotalDiscount(cart.getTotalDiscount());
+        copy.setFinalAmount(cart.getFinalAmount());
+        copy.setAppliedCoupon(cart.getAppliedCoupon());
+        for (CartItem item : cart.getItems()) {
+            copy.getItems().add(new CartItem(null, item.getProduct(), item.getQuantity(), item.getOriginalPrice(),
+                    item.getDiscountedPrice(), item.getDiscountAmount(), copy));
+        }
+        return copy;
+    }
+
+    private void write(List<Cart> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                save(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to persist a batch of {} carts (attempt {} of {})", batch.size(), attempt,
+                        MAX_ATTEMPTS, e);
+            }
+            if (attempt < MAX_ATTEMPTS && !backOff(attempt)) {
+                break;
+            }
+        }
+        for (Cart cart : batch) {
+            try {
+                save(List.of(cart));
+            } catch (RuntimeException e) {
+                metrics.recordDroppedCart();
+                log.error("Dropping cart with total {} and coupon {}", cart.getTotalAmount(),
+                        cart.getAppliedCoupon() == null ? null : cart.getAppliedCoupon().getId(), e);
+            }
+        }
+    }
+
+    private void save(List<Cart> carts) {
+        metrics.timeCartPersistence(() -> transactionTemplate.execute(status -> {
+            carts.forEach(this::prepare);
+            return cartRepository.saveAll(carts);
+        }));
+    }
+
+    // Interrupted during shutdown: skip the remaining retries and go straight to per-cart saves
+    private static boolean backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // A rolled-back attempt leaves sequence IDs on the entities; clear them so a retry inserts rather than merges
+    private void prepare(Cart cart) {
+        cart.setId(null);
+        cart.getItems().forEach(item -> item.setId(null));
+        attachCoupon(cart);
+    }
+
+    // The coupon reference was taken in the request's session; re-take it in the writer's session
+    private void attachCoupon(Cart cart) {
+        if (cart.getAppliedCoupon() != null) {
+            cart.setAppliedCoupon(couponRepository.getReferenceById(cart.getAppliedCoupon().getId()));
+        }
+    }
+}
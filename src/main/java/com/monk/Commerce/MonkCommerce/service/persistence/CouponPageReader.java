@@ -0,0 +1,46 @@
+package com.monk.Commerce.MonkCommerce.service.persistence;
+
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Reads one keyset page in its own read-only transaction and maps it before the entities are released
+@Component
+public class CouponPageReader {
+
+    private final CouponRepository couponRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public CouponPageReader(CouponRepository couponRepository,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager) {
+        this.couponRepository = couponRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public <T> List<T> read(CouponType type, Boolean active, long after, int limit, Function<Coupon, T> mapper) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = couponRepository.findPageIds(after, type, active, Limit.of(limit));
+            if (ids.isEmpty()) {
+                return List.<T>of();
+            }
+            List<T> page = couponRepository.findRange(after, ids.get(ids.size() - 1), type, active).stream()
+                    .map(mapper)
+                    .toList();
+            // An open-in-view session outlives the transaction; drop the page so long walks stay flat
+            entityManager.clear();
+            return page;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.monk.Commerce.MonkCommerce.service.redemption;
+
+import com.monk.Commerce.MonkCommerce.model.RedemptionCounter;
+import com.monk.Commerce.MonkCommerce.repository.RedemptionCounterRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/*
+ * Durable side of redemption accounting. Global caps are handed out in blocks: one locked counter row update buys
+ * a node up to blockSize redemptions, so a hot coupon costs one row lock per block instead of one per redemption.
+ * A reservation commits on its own and must never be rolled back once its tokens are in memory, so it takes a
+ * second pooled connection while the caller still holds its own. That happens once per block, by one thread per
+ * coupon at a time (TokenBudget refills under its monitor), so the pool needs headroom for the number of capped
+ * coupons that can be refilling at once, not for the request rate.
+ *
+ * Customer redemptions are counted in the caller's transaction instead: they commit or roll back with the cart.
+ */
+@Component
+public class RedemptionLedger {
+
+    private static final String INCREMENT_CUSTOMER = "update coupon_customer_redemptions"
+            + " set redemptions = redemptions + 1 where coupon_id = ? and customer_id = ? and redemptions < ?";
+    private static final String INSERT_CUSTOMER = "insert into coupon_customer_redemptions"
+            + " (coupon_id, customer_id, redemptions) values (?, ?, 1)";
+    private static final String DECREMENT_CUSTOMER = "update coupon_customer_redemptions"
+            + " set redemptions = redemptions - 1 where coupon_id = ? and customer_id = ? and redemptions > 0";
+
+    private final RedemptionCounterRepository counterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reserveTemplate;
+    private final TransactionTemplate customerTemplate;
+
+    public RedemptionLedger(RedemptionCounterRepository counterRepository,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager) {
+        this.counterRepository = counterRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reserveTemplate = new TransactionTemplate(transactionManager);
+        this.reserveTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.customerTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Returns how many tokens were granted: up to blockSize, fewer near the cap, 0 once the cap is handed out
+    public long reserve(long couponId, long cap, long blockSize) {
+        try {
+            return reserveTemplate.execute(status -> grant(couponId, cap, blockSize));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter row first; it exists now, so the retry takes the row lock
+            return reserveTemplate.execute(status -> grant(couponId, cap, blockSize));
+        }
+    }
+
+    private long grant(long couponId, long cap, long blockSize) {
+        RedemptionCounter counter = counterRepository.findForUpdate(couponId)
+                .orElseGet(() -> counterRepository.saveAndFlush(new RedemptionCounter(couponId, 0L)));
+        long granted = Math.max(0L, Math.min(blockSize, cap - counter.getReserved()));
+        counter.setReserved(counter.getReserved() + granted);
+        return granted;
+    }
+
+    // Joins the caller's transaction. The conditional increment checks and counts in one statement, so concurrent
+    // requests cannot both pass the limit; customer rows are independent, so customers of a hot coupon never contend.
+    public boolean recordCustomerRedemption(long couponId, String customerId, int limit) {
+        if (limit < 1) {
+            return false;
+        }
+        return Boolean.TRUE.equals(customerTemplate.execute(status ->
+                jdbcTemplate.update(INCREMENT_CUSTOMER, couponId, customerId, limit) == 1
+                        || insertFirstRedemption(couponId, customerId)
+                        // A concurrent first redemption by the same customer inserted the row; count against it
+                        || jdbcTemplate.update(INCREMENT_CUSTOMER, couponId, customerId, limit) == 1));
+    }
+
+    // Undoes a redemption that committed without a surrounding transaction; inside one, rollback undoes it
+    public void releaseCustomerRedemption(long couponId, String customerId) {
+        customerTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(DECREMENT_CUSTOMER, couponId, customerId));
+    }
+
+    // A duplicate key would doom the caller's transaction, so the insert runs under a savepoint it can roll back to
+    private boolean insertFirstRedemption(long couponId, String customerId) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_CUSTOMER)) {
+                insert.setLong(1, couponId);
+                insert.setString(2, customerId);
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                // SQLState class 23: integrity constraint violation, here the primary key
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return false;
+            }
+        }));
+    }
+}
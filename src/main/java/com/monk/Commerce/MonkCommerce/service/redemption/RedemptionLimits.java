@@ -0,0 +1,129 @@
+package com.monk.Commerce.MonkCommerce.service.redemption;
+
+import com.monk.Commerce.MonkCommerce.exception.CouponNotApplicableException;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Enforces maxRedemptions and maxRedemptionsPerCustomer; coupons without either never touch this state
+@Component
+public class RedemptionLimits {
+
+    private static final int MAX_STRIPES = 16;
+
+    private final RedemptionLedger ledger;
+    private final int blockSize;
+    private final int stripeCount;
+    private final Map<Long, TokenBudget> budgets = new ConcurrentHashMap<>();
+
+    public RedemptionLimits(RedemptionLedger ledger,
+                            @Value("${coupon.redemption.block-size:100}") int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("coupon.redemption.block-size must be at least 1");
+        }
+        this.ledger = ledger;
+        this.blockSize = blockSize;
+        this.stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+    }
+
+    /*
+     * The global token is taken first: it is a CAS in memory, and is simply put back if the customer check fails.
+     * The customer count is written in the caller's transaction and rolls back with it; inside a transaction the
+     * global token is likewise returned on rollback, however late the failure (the cart INSERT may only run at
+     * flush or commit). Callers without a transaction cancel() themselves, which also takes back the customer
+     * count the ledger committed on its own.
+     */
+    public Redemption redeem(CouponSnapshot coupon, String customerId) {
+        Integer perCustomer = coupon.getMaxRedemptionsPerCustomer();
+        if (perCustomer != null && (customerId == null || customerId.isBlank())) {
+            throw new IllegalArgumentException("A customer id is required for coupons with a per-customer limit");
+        }
+
+        TokenBudget budget = null;
+        if (coupon.getMaxRedemptions() != null) {
+            budget = budgetFor(coupon);
+            if (!budget.tryAcquire()) {
+                throw new CouponNotApplicableException("Coupon redemption limit reached");
+            }
+        }
+
+        if (perCustomer != null) {
+            boolean recorded;
+            try {
+                recorded = ledger.recordCustomerRedemption(coupon.getId(), customerId, perCustomer);
+            } catch (RuntimeException e) {
+                release(budget);
+                throw e;
+            }
+            if (!recorded) {
+                release(budget);
+                throw new CouponNotApplicableException("Coupon redemption limit reached for this customer");
+            }
+        }
+        boolean customerCommitted = perCustomer != null && !TransactionSynchronizationManager.isActualTransactionActive();
+        Redemption redemption = new Redemption(budget, customerCommitted ? ledger : null, coupon.getId(), customerId);
+        if (budget != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        redemption.cancel();
+                    }
+                }
+            });
+        }
+        return redemption;
+    }
+
+    private TokenBudget budgetFor(CouponSnapshot coupon) {
+        long couponId = coupon.getId();
+        long cap = coupon.getMaxRedemptions();
+        TokenBudget budget = budgets.get(couponId);
+        if (budget == null) {
+            budget = budgets.computeIfAbsent(couponId,
+                    id -> new TokenBudget(cap, stripeCount, current -> ledger.reserve(id, current, blockSize)));
+        }
+        // Caps change through coupon updates; the snapshot in hand is the current truth. Lock-free unless it moved.
+        budget.updateCap(cap);
+        return budget;
+    }
+
+    private static void release(TokenBudget budget) {
+        if (budget != null) {
+            budget.release();
+        }
+    }
+
+    // A taken redemption; cancel() gives it back when the apply fails after the limits were checked. Only the
+    // first cancel() counts, so the rollback hook and an explicit cancel cannot return it twice.
+    public static final class Redemption {
+        private final TokenBudget budget;
+        private final RedemptionLedger customerLedger;
+        private final long couponId;
+        private final String customerId;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Redemption(TokenBudget budget, RedemptionLedger customerLedger, long couponId, String customerId) {
+            this.budget = budget;
+            this.customerLedger = customerLedger;
+            this.couponId = couponId;
+            this.customerId = customerId;
+        }
+
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            release(budget);
+            if (customerLedger != null) {
+                customerLedger.releaseCustomerRedemption(couponId, customerId);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.monk.Commerce.MonkCommerce.service.redemption;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongUnaryOperator;
+
+/*
+ * Redemption tokens this node holds for one capped coupon. Tokens sit in padded stripes picked by thread, so
+ * concurrent redemptions CAS different cache lines; a thread whose stripe is empty takes from the others before
+ * anyone goes to the ledger. Only tokens granted by the ledger ever enter the stripes, which is what keeps the
+ * cap from being oversold across nodes. Tokens still held when a node stops are lost, never reused.
+ */
+final class TokenBudget {
+
+    // 8 longs = 64 bytes, so neighbouring stripes never share a cache line
+    private static final int PAD = 8;
+
+    private final AtomicLongArray stripes;
+    private final int stripeCount;
+    private final LongUnaryOperator reserve;
+    private volatile long cap;
+    private volatile boolean exhausted;
+
+    // reserve maps the current cap to the number of tokens the ledger granted
+    TokenBudget(long cap, int stripeCount, LongUnaryOperator reserve) {
+        this.stripeCount = Integer.highestOneBit(Math.max(1, stripeCount));
+        this.stripes = new AtomicLongArray(this.stripeCount * PAD);
+        this.reserve = reserve;
+        this.cap = cap;
+    }
+
+    boolean tryAcquire() {
+        if (takeLocal()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        synchronized (this) {
+            // Another thread may have refilled while this one waited
+            if (takeLocal()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            long granted = reserve.applyAsLong(cap);
+            if (granted <= 0) {
+                exhausted = true;
+                return false;
+            }
+            deposit(granted - 1);
+            return true;
+        }
+    }
+
+    void release() {
+        stripes.incrementAndGet(slot() * PAD);
+    }
+
+    // A raised cap lets the ledger grant again; a lowered one drops local tokens rather than risk going over it.
+    // Called on every redemption, so the unchanged case is a single volatile read and never takes the monitor.
+    void updateCap(long newCap) {
+        if (newCap == cap) {
+            return;
+        }
+        synchronized (this) {
+            if (newCap == cap) {
+                return;
+            }
+            if (newCap < cap) {
+                for (int i = 0; i < stripeCount; i++) {
+                    stripes.set(i * PAD, 0L);
+                }
+            }
+            cap = newCap;
+            exhausted = false;
+        }
+    }
+
+    long available() {
+        long total = 0L;
+        for (int i = 0; i < stripeCount; i++) {
+            total += stripes.get(i * PAD);
+        }
+        return total;
+    }
+
+    private boolean takeLocal() {
+        int start = slot();
+        for (int i = 0; i < stripeCount; i++) {
+            int index = ((start + i) & (stripeCount - 1)) * PAD;
+            long tokens;
+            while ((tokens = stripes.get(index)) > 0) {
+                if (stripes.compareAndSet(index, tokens, tokens - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Spreads a block over all stripes so threads do not all drain the refiller's stripe
+    private void deposit(long tokens) {
+        long share = tokens / stripeCount;
+        int own = slot();
+        for (int i = 0; i < stripeCount; i++) {
+            long amount = share + (i == own ? tokens % stripeCount : 0L);
+            if (amount > 0) {
+                stripes.addAndGet(i * PAD, amount);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private int slot() {
+        return Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) & (stripeCount - 1);
+    }
+}
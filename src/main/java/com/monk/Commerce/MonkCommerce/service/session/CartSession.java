@@ -0,0 +1,121 @@
+package com.monk.Commerce.MonkCommerce.service.session;
+
+import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
+import com.monk.Commerce.MonkCommerce.service.catalog.CatalogSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/*
+ * Server-side cart plus the evaluation state of the product-indexed coupons that touch it. Product-wise and BxGy
+ * discounts only read the lines of their own products, so a line change re-evaluates just that product's posting
+ * list. Cart-wise discounts depend on the total alone and are read off the threshold index on every view. A new
+ * catalog version (coupon change or validity transition) drops the state and the next access rebuilds it.
+ */
+public final class CartSession {
+
+    public record Line(int quantity, long unitPrice, long catalogUnitPrice) {
+    }
+
+    public record View(String id, Map<Long, Line> lines, long total, List<ApplicableCouponDTO> applicableCoupons) {
+    }
+
+    private static final Comparator<ApplicableCouponDTO> BY_ID = Comparator.comparing(ApplicableCouponDTO::getId);
+
+    @Getter
+    private final String id;
+    // One line per product, in the order products were first added
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    // Applicable product-wise / BxGy coupons by coupon ID, valid for catalogVersion
+    private final Map<Long, ApplicableCouponDTO> productCoupons = new HashMap<>();
+    private long catalogVersion = -1L;
+
+    public CartSession(String id) {
+        this.id = id;
+    }
+
+    // change receives the current line (null if absent) and returns the new one (null removes it)
+    public synchronized View change(long productId, UnaryOperator<Line> change, CatalogSnapshot catalog,
+                                    CouponEvaluator evaluator) {
+        Line updated = change.apply(lines.get(productId));
+        if (updated == null) {
+            lines.remove(productId);
+        } else {
+            lines.put(productId, updated);
+        }
+        PricedCart cart = priced();
+        if (catalog.getVersion() == catalogVersion) {
+            reevaluate(catalog.getProductIndex().getOrDefault(productId, List.of()), cart, evaluator);
+        } else {
+            reevaluateAll(catalog, cart, evaluator);
+        }
+        return view(catalog, cart, evaluator);
+    }
+
+    public synchronized View view(CatalogSnapshot catalog, CouponEvaluator evaluator) {
+        PricedCart cart = priced();
+        if (catalog.getVersion() != catalogVersion) {
+            reevaluateAll(catalog, cart, evaluator);
+        }
+        return view(catalog, cart, evaluator);
+    }
+
+    private void reevaluateAll(CatalogSnapshot catalog, PricedCart cart,
+                               CouponEvaluator evaluator) {
+        productCoupons.clear();
+        Map<Long, CouponSnapshot> candidates = new HashMap<>();
+        for (Long productId : lines.keySet()) {
+            for (CouponSnapshot coupon : catalog.getProductIndex().getOrDefault(productId, List.of())) {
+                candidates.putIfAbsent(coupon.getId(), coupon);
+            }
+        }
+        reevaluate(candidates.values(), cart, evaluator);
+        catalogVersion = catalog.getVersion();
+    }
+
+    private void reevaluate(Collection<CouponSnapshot> coupons, PricedCart cart,
+                            CouponEvaluator evaluator) {
+        for (CouponSnapshot coupon : coupons) {
+            DiscountPlan plan = evaluator.evaluate(coupon, cart);
+            if (plan.isApplicable()) {
+                productCoupons.put(coupon.getId(), plan.toApplicableCoupon(coupon));
+            } else {
+                productCoupons.remove(coupon.getId());
+            }
+        }
+    }
+
+    private View view(CatalogSnapshot catalog, PricedCart cart,
+                      CouponEvaluator evaluator) {
+        List<ApplicableCouponDTO> applicable = new ArrayList<>(productCoupons.values());
+        for (CouponSnapshot coupon : catalog.getCartWiseIndex().qualifying(cart.total())) {
+            DiscountPlan plan = evaluator.evaluate(coupon, cart);
+            if (plan.isApplicable()) {
+                applicable.add(plan.toApplicableCoupon(coupon));
+            }
+        }
+        applicable.sort(BY_ID);
+        return new View(id, new LinkedHashMap<>(lines), cart.total(), applicable);
+    }
+
+    private PricedCart priced() {
+        int size = lines.size();
+        long[] productIds = new long[size];
+        int[] quantities = new int[size];
+        long[] unitPrices = new long[size];
+        long[] catalogUnitPrices = new long[size];
+        int i = 0;
+        for (Map.Entry<Long, Line> entry : lines.entrySet()) {
+            productIds[i] = entry.getKey();
+            quantities[i] = entry.getValue().quantity();
+            unitPrices[i] = entry.getValue().unitPrice();
+            catalogUnitPrices[i] = entry.getValue().catalogUnitPrice();
+            i++;
+        }
+        return PricedCart.of(productIds, quantities, unitPrices, catalogUnitPrices);
+    }
+}
@@ -0,0 +1,71 @@
+package com.monk.Commerce.MonkCommerce.service.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.monk.Commerce.MonkCommerce.exception.CartSessionNotFoundException;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.metrics.CouponMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// In-memory cart sessions; idle sessions expire and the oldest are evicted once the cap is reached
+@Component
+public class CartSessions {
+
+    private final Cache<String, CartSession> sessions;
+    private final CouponCatalog couponCatalog;
+    private final CouponMetrics metrics;
+
+    public CartSessions(CouponCatalog couponCatalog,
+                        CouponMetrics metrics,
+                        @Value("${coupon.cart-session.ttl:30m}") Duration ttl,
+                        @Value("${coupon.cart-session.max-sessions:100000}") long maxSessions) {
+        this.couponCatalog = couponCatalog;
+        this.metrics = metrics;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                .maximumSize(maxSessions)
+                .build();
+    }
+
+    public CartSession.View create() {
+        CartSession session = new CartSession(UUID.randomUUID().toString());
+        sessions.put(session.getId(), session);
+        return evaluate(evaluator -> session.view(couponCatalog.snapshot(), evaluator));
+    }
+
+    public CartSession.View view(String sessionId) {
+        CartSession session = find(sessionId);
+        return evaluate(evaluator -> session.view(couponCatalog.snapshot(), evaluator));
+    }
+
+    public CartSession.View change(String sessionId, long productId, UnaryOperator<CartSession.Line> change) {
+        CartSession session = find(sessionId);
+        return evaluate(evaluator -> session.change(productId, change, couponCatalog.snapshot(), evaluator));
+    }
+
+    public void remove(String sessionId) {
+        find(sessionId);
+        sessions.invalidate(sessionId);
+    }
+
+    private CartSession find(String sessionId) {
+        CartSession session = sessions.getIfPresent(sessionId);
+        if (session == null) {
+            throw new CartSessionNotFoundException("Cart session not found with id: " + sessionId);
+        }
+        return session;
+    }
+
+    private CartSession.View evaluate(Function<CouponEvaluator, CartSession.View> call) {
+        CouponMetrics.Evaluation evaluation = metrics.startEvaluation(CouponMetrics.Operation.SESSION);
+        CartSession.View view = call.apply(evaluation::evaluate);
+        evaluation.finish();
+        return view;
+    }
+}
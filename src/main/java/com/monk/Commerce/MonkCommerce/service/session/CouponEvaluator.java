@@ -0,0 +1,10 @@
+package com.monk.Commerce.MonkCommerce.service.session;
+
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import com.monk.Commerce.MonkCommerce.service.strategy.PricedCart;
+
+@FunctionalInterface
+public interface CouponEvaluator {
+    DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart);
+}
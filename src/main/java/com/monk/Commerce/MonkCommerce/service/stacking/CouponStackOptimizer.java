@@ -0,0 +1,213 @@
+package com.monk.Commerce.MonkCommerce.service.stacking;
+
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/*
+ * Finds the coupon combination with the largest discount. Combined discounts are summed per cart line and
+ * capped at the line total, so stacking can never discount a line below zero. Branch-and-bound over the
+ * stackable candidates sorted by value: a branch is cut when even its best remaining coupons cannot beat the
+ * incumbent, and states with the same position, free slots and per-line discounts are only explored once.
+ *
+ * Each recursion level takes one coupon, so the stack depth is bounded by the policy's coupon count however many
+ * candidates there are. The memo grows with the nodes visited, which the time budget bounds; a memo entry (and
+ * its copy of the per-line sums) is only allocated for a state that passed the bound check and is new.
+ */
+@Component
+public class CouponStackOptimizer {
+
+    private final int maxStackedCoupons;
+    private final Duration maxTimeBudget;
+
+    public CouponStackOptimizer(@Value("${coupon.stacking.max-coupons:10}") int maxStackedCoupons,
+                                @Value("${coupon.stacking.max-time-budget:1s}") Duration maxTimeBudget) {
+        this.maxStackedCoupons = maxStackedCoupons;
+        this.maxTimeBudget = maxTimeBudget;
+    }
+
+    // lineTotals and all discounts are in minor units
+    public StackResult optimize(List<StackCandidate> candidates, long[] lineTotals, StackingPolicy policy) {
+        checkPolicy(policy);
+        return new Search(candidates, lineTotals, policy).run();
+    }
+
+    // Both limits come from the request, so a caller could otherwise hold a request thread for as long as it likes
+    private void checkPolicy(StackingPolicy policy) {
+        if (policy.getMaxCoupons() < 1 || policy.getMaxCoupons() > maxStackedCoupons) {
+            throw new IllegalArgumentException(
+                    "Maximum number of stacked coupons must be between 1 and " + maxStackedCoupons);
+        }
+        if (policy.getTimeBudget().isNegative() || policy.getTimeBudget().compareTo(maxTimeBudget) > 0) {
+            throw new IllegalArgumentException(
+                    "Time budget must be between 0 and " + maxTimeBudget.toMillis() + " ms");
+        }
+    }
+
+    private static final class Search {
+        private final long[] lineTotals;
+        private final long cartTotal;
+        private final int maxCoupons;
+        private final long deadline;
+        private final List<StackCandidate> singles;
+        private final StackCandidate[] stackable;
+        private final long[] weights;
+        private final long[] prefixWeights;
+        private final long[] lineSums;
+        private final Set<StateKey> visited = new HashSet<>();
+        private final Deque<StackCandidate> path = new ArrayDeque<>();
+
+        private List<StackCandidate> best = List.of();
+        private long bestValue;
+        private long nodes;
+        private boolean timedOut;
+
+        Search(List<StackCandidate> candidates, long[] lineTotals, StackingPolicy policy) {
+            this.lineTotals = lineTotals;
+            this.cartTotal = Arrays.stream(lineTotals).sum();
+            this.maxCoupons = policy.getMaxCoupons();
+            this.deadline = System.nanoTime() + policy.getTimeBudget().toNanos();
+            this.singles = candidates;
+            this.lineSums = new long[lineTotals.length];
+
+            List<StackCandidate> sorted = candidates.stream()
+                    .filter(c -> policy.getStackableTypes().contains(c.getCoupon().getType()))
+                    .sorted(Comparator.comparingLong(this::cappedValue).reversed())
+                    .toList();
+            this.stackable = sorted.toArray(new StackCandidate[0]);
+            this.weights = new long[stackable.length];
+            this.prefixWeights = new long[stackable.length + 1];
+            for (int i = 0; i < stackable.length; i++) {
+                weights[i] = cappedValue(stackable[i]);
+                prefixWeights[i + 1] = prefixWeights[i] + weights[i];
+            }
+        }
+
+        StackResult run() {
+            // The best single coupon of any type is the starting incumbent
+            for (StackCandidate candidate : singles) {
+                long value = cappedValue(candidate);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = List.of(candidate);
+                }
+            }
+            search(0, maxCoupons, 0L);
+            return new StackResult(withoutRedundantCoupons(best), Money.toMajor(bestValue), !timedOut);
+        }
+
+        // Tries each remaining candidate as the next coupon of the stack; skipping a candidate is the loop, not a call
+        private void search(int start, int slotsLeft, long value) {
+            if (value > bestValue) {
+                bestValue = value;
+                best = List.copyOf(path);
+            }
+            if (slotsLeft == 0) {
+                return;
+            }
+            for (int index = start; index < stackable.length && !timedOut; index++) {
+                if ((nodes++ & 0xFF) == 0 && System.nanoTime() >= deadline) {
+                    timedOut = true;
+                    return;
+                }
+                // Weights are sorted, so the bound only falls from here on
+                long bound = Math.min(cartTotal,
+                        value + prefixWeights[Math.min(stackable.length, index + slotsLeft)] - prefixWeights[index]);
+                if (bound <= bestValue) {
+                    return;
+                }
+                // A seen state has had every stack from this index onwards tried already
+                if (!markVisited(index, slotsLeft)) {
+                    return;
+                }
+
+                StackCandidate candidate = stackable[index];
+                long gain = 0L;
+                for (int line = 0; line < lineTotals.length; line++) {
+                    long before = Math.min(lineTotals[line], lineSums[line]);
+                    lineSums[line] += candidate.getPlan().getLineDiscountMinor(line);
+                    gain += Math.min(lineTotals[line], lineSums[line]) - before;
+                }
+                if (gain > 0) {
+                    path.addLast(candidate);
+                    search(index + 1, slotsLeft - 1, value + gain);
+                    path.removeLast();
+                }
+                for (int line = 0; line < lineTotals.length; line++) {
+                    lineSums[line] -= candidate.getPlan().getLineDiscountMinor(line);
+                }
+            }
+        }
+
+        // Probes with the live sums and copies them only when the state is new
+        private boolean markVisited(int index, int slotsLeft) {
+            if (visited.contains(new StateKey(index, slotsLeft, lineSums))) {
+                return false;
+            }
+            visited.add(new StateKey(index, slotsLeft, lineSums.clone()));
+            return true;
+        }
+
+        // Ties can pull in coupons that add nothing once the lines they touch are fully discounted
+        private List<StackCandidate> withoutRedundantCoupons(List<StackCandidate> stack) {
+            List<StackCandidate> kept = new ArrayList<>(stack);
+            for (int i = kept.size() - 1; i >= 0 && kept.size() > 1; i--) {
+                StackCandidate removed = kept.remove(i);
+                if (stackValue(kept) < bestValue) {
+                    kept.add(i, removed);
+                }
+            }
+            return kept;
+        }
+
+        private long stackValue(List<StackCandidate> stack) {
+            long value = 0L;
+            for (int line = 0; line < lineTotals.length; line++) {
+                long lineSum = 0L;
+                for (StackCandidate candidate : stack) {
+                    lineSum += candidate.getPlan().getLineDiscountMinor(line);
+                }
+                value += Math.min(lineTotals[line], lineSum);
+            }
+            return value;
+        }
+
+        private long cappedValue(StackCandidate candidate) {
+            long value = 0L;
+            for (int line = 0; line < lineTotals.length; line++) {
+                value += Math.min(lineTotals[line], candidate.getPlan().getLineDiscountMinor(line));
+            }
+            return value;
+        }
+    }
+
+    private static final class StateKey {
+        private final int index;
+        private final int slotsLeft;
+        private final long[] lineSums;
+        private final int hash;
+
+        StateKey(int index, int slotsLeft, long[] lineSums) {
+            this.index = index;
+            this.slotsLeft = slotsLeft;
+            this.lineSums = lineSums;
+            this.hash = 31 * (31 * index + slotsLeft) + Arrays.hashCode(lineSums);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey other)) {
+                return false;
+            }
+            return index == other.index && slotsLeft == other.slotsLeft && Arrays.equals(lineSums, other.lineSums);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.monk.Commerce.MonkCommerce.service.stacking;
+
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.strategy.DiscountPlan;
+import lombok.Value;
+
+@Value
+public class StackCandidate {
+    CouponSnapshot coupon;
+    DiscountPlan plan;
+}
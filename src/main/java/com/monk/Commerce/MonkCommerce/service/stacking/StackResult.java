@@ -0,0 +1,13 @@
+package com.monk.Commerce.MonkCommerce.service.stacking;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class StackResult {
+    List<StackCandidate> coupons;
+    double totalDiscount;
+    // false when the time budget ran out and the result is the best combination found so far
+    boolean complete;
+}
@@ -0,0 +1,15 @@
+package com.monk.Commerce.MonkCommerce.service.stacking;
+
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Value
+public class StackingPolicy {
+    // Coupons of these types may be combined; any other coupon can only be used on its own
+    Set<CouponType> stackableTypes;
+    int maxCoupons;
+    Duration timeBudget;
+}
@@ -1,38 +1,30 @@
 package com.monk.Commerce.MonkCommerce.service.strategy;
 
-import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
-import com.monk.Commerce.MonkCommerce.model.Cart;
-import com.monk.Commerce.MonkCommerce.model.CartItem;
-import com.monk.Commerce.MonkCommerce.model.Coupon;
-import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
-import lombok.RequiredArgsConstructor;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
+// Pure function of the coupon and a pre-resolved cart: free items are priced from the product carried on each line
 @Component
-@RequiredArgsConstructor
 public class BxGyStrategy implements CouponDiscountStrategy {
 
-    private final ProductRepository productRepository;
-
     @Override
-    public double calculateDiscount(Coupon coupon, Cart cart) {
-        Map<Long, Integer> buyProductQuantities = new HashMap<>();
-        for (CartItem item : cart.getItems()) {
-            if (coupon.getBuyProductIds().contains(item.getProduct().getId())) {
-                buyProductQuantities.put(item.getProduct().getId(),
-                        buyProductQuantities.getOrDefault(item.getProduct().getId(), 0) + item.getQuantity());
-            }
+    public DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart) {
+        ProductIdSet buyProducts = coupon.getBuyProducts();
+        ProductIdSet freeProducts = coupon.getFreeProducts();
+        if (buyProducts.isEmpty() || freeProducts.isEmpty()) {
+            return DiscountPlan.none();
         }
 
-        int totalBuyQuantity = buyProductQuantities.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        int totalBuyQuantity = 0;
+        for (int i = 0; i < cart.size(); i++) {
+            if (buyProducts.contains(cart.productId(i))) {
+                totalBuyQuantity += cart.quantity(i);
+            }
+        }
 
         if (totalBuyQuantity < coupon.getBuyQuantity()) {
-            return 0.0;
+            return DiscountPlan.none();
         }
 
         int dealRepetitions = totalBuyQuantity / coupon.getBuyQuantity();
@@ -42,92 +34,36 @@ public class BxGyStrategy implements CouponDiscountStrategy {
 
         int totalFreeQuantity = dealRepetitions * coupon.getGetQuantity();
 
-        double totalDiscount = 0.0;
-        Map<Long, Integer> freeProductQuantities = new HashMap<>();
-        for (CartItem item : cart.getItems()) {
-            if (coupon.getFreeProductIds().contains(item.getProduct().getId())) {
-                freeProductQuantities.put(item.getProduct().getId(), item.getQuantity());
-            }
-        }
-
+        long[] lineDiscounts = new long[cart.size()];
+        long totalDiscount = 0L;
         int remainingFreeQuantity = totalFreeQuantity;
-        for (Map.Entry<Long, Integer> entry : freeProductQuantities.entrySet()) {
+        for (int i = 0; i < cart.size(); i++) {
             if (remainingFreeQuantity <= 0) break;
 
-            Long productId = entry.getKey();
-            Integer availableQuantity = entry.getValue();
-            var product = productRepository.findById(productId).orElse(null);
-            if (product != null) {
-                int freeCount = Math.min(remainingFreeQuantity, availableQuantity);
-                totalDiscount += product.getPrice() * freeCount;
+            if (freeProducts.contains(cart.productId(i))) {
+                int freeCount = Math.min(remainingFreeQuantity, cart.quantity(i));
+                long freeDiscount = cart.catalogUnitPrice(i) * freeCount;
+                lineDiscounts[i] = freeDiscount;
+                totalDiscount += freeDiscount;
                 remainingFreeQuantity -= freeCount;
             }
         }
 
-        return totalDiscount;
-    }
-
-    @Override
-    public ApplicableCouponDTO checkApplicability(Coupon coupon, Cart cart) {
-        if (coupon.getBuyProductIds() == null || coupon.getBuyProductIds().isEmpty() ||
-            coupon.getFreeProductIds() == null || coupon.getFreeProductIds().isEmpty()) {
-            return null;
-        }
-        double totalDiscount = calculateDiscount(coupon, cart);
         if (totalDiscount == 0) {
-            return null;
+            return DiscountPlan.none();
         }
-        ApplicableCouponDTO dto = new ApplicableCouponDTO();
-        dto.setId(coupon.getId());
-        dto.setName(coupon.getName());
-        dto.setType(coupon.getType());
-        dto.setTotalDiscount(totalDiscount);
-        dto.setReason("BxGy conditions met");
-        return dto;
+        return new DiscountPlan(totalDiscount, lineDiscounts, "BxGy conditions met");
     }
 
+    // Every free line given away in full, ignoring the buy requirement and repetition limit
     @Override
-    public void applyDiscount(Coupon coupon, Cart cart) {
-        for (var item : cart.getItems()) {
-            item.setDiscountAmount(0.0);
-            item.setDiscountedPrice(item.getOriginalPrice() * item.getQuantity());
-        }
-
-        Map<Long, Integer> buyProductQuantities = new HashMap<>();
-        for (var item : cart.getItems()) {
-            if (coupon.getBuyProductIds().contains(item.getProduct().getId())) {
-                buyProductQuantities.put(item.getProduct().getId(),
-                        buyProductQuantities.getOrDefault(item.getProduct().getId(), 0) + item.getQuantity());
-            }
-        }
-
-        int totalBuyQuantity = buyProductQuantities.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
-
-        if (totalBuyQuantity < coupon.getBuyQuantity()) {
-            return;
-        }
-
-        int dealRepetitions = totalBuyQuantity / coupon.getBuyQuantity();
-        if (coupon.getMaxRepetitions() != null && coupon.getMaxRepetitions() > 0) {
-            dealRepetitions = Math.min(dealRepetitions, coupon.getMaxRepetitions());
-        }
-
-        int totalFreeQuantity = dealRepetitions * coupon.getGetQuantity();
-
-        int remainingFreeQuantity = totalFreeQuantity;
-        for (var item : cart.getItems()) {
-            if (remainingFreeQuantity <= 0) break;
-
-            if (coupon.getFreeProductIds().contains(item.getProduct().getId())) {
-                int freeCount = Math.min(remainingFreeQuantity, item.getQuantity());
-                double freeDiscount = item.getProduct().getPrice() * freeCount;
-                item.setDiscountAmount(freeDiscount);
-                item.setDiscountedPrice((item.getOriginalPrice() * item.getQuantity()) - freeDiscount);
-                remainingFreeQuantity -= freeCount;
+    public long upperBound(CouponSnapshot coupon, PricedCart cart) {
+        long freeTotal = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (coupon.getFreeProducts().contains(cart.productId(i))) {
+                freeTotal += cart.catalogUnitPrice(i) * cart.quantity(i);
             }
         }
+        return freeTotal;
     }
 }
-
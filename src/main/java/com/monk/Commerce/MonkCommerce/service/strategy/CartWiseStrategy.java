@@ -1,57 +1,37 @@
 package com.monk.Commerce.MonkCommerce.service.strategy;
 
-import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
-import com.monk.Commerce.MonkCommerce.model.Cart;
-import com.monk.Commerce.MonkCommerce.model.Coupon;
 import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
 import org.springframework.stereotype.Component;
 
 @Component
 public class CartWiseStrategy implements CouponDiscountStrategy {
 
     @Override
-    public double calculateDiscount(Coupon coupon, Cart cart) {
-        if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-            return cart.getTotalAmount() * (coupon.getDiscountValue() / 100.0);
-        } else {
-            return Math.min(coupon.getDiscountValue(), cart.getTotalAmount());
+    public DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart) {
+        long totalDiscount = upperBound(coupon, cart);
+        if (totalDiscount <= 0) {
+            return DiscountPlan.none();
         }
+        return new DiscountPlan(totalDiscount, distributeDiscountProportionally(cart, totalDiscount),
+                "Cart total meets minimum requirement");
     }
 
+    // Exact for cart-wise coupons: the whole discount is known from the cart total alone
     @Override
-    public ApplicableCouponDTO checkApplicability(Coupon coupon, Cart cart) {
-        if (coupon.getMinimumCartTotal() != null && cart.getTotalAmount() <= coupon.getMinimumCartTotal()) {
-            return null;
+    public long upperBound(CouponSnapshot coupon, PricedCart cart) {
+        if (cart.total() <= coupon.getMinimumCartTotalMinor()) {
+            return 0L;
         }
-        double totalDiscount = calculateDiscount(coupon, cart);
-        if (totalDiscount > 0) {
-            ApplicableCouponDTO dto = new ApplicableCouponDTO();
-            dto.setId(coupon.getId());
-            dto.setName(coupon.getName());
-            dto.setType(coupon.getType());
-            dto.setTotalDiscount(totalDiscount);
-            dto.setReason("Cart total meets minimum requirement");
-            return dto;
+        if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
+            return Money.percentage(cart.total(), coupon.getDiscountBasisPoints());
         }
-        return null;
-    }
-
-    @Override
-    public void applyDiscount(Coupon coupon, Cart cart) {
-        double totalDiscount = calculateDiscount(coupon, cart);
-        distributeDiscountProportionally(cart, totalDiscount);
+        return Math.min(coupon.getDiscountMinor(), cart.total());
     }
 
-    private void distributeDiscountProportionally(Cart cart, double totalDiscount) {
-        double totalAmount = cart.getTotalAmount();
-        if (totalAmount == 0) return;
-
-        for (var item : cart.getItems()) {
-            double itemTotal = item.getOriginalPrice() * item.getQuantity();
-            double itemDiscount = (itemTotal / totalAmount) * totalDiscount;
-            item.setDiscountAmount(itemDiscount);
-            item.setDiscountedPrice(itemTotal - itemDiscount);
-        }
+    // Line shares always add up to the total discount, to the minor unit
+    private long[] distributeDiscountProportionally(PricedCart cart, long totalDiscount) {
+        return Money.allocate(totalDiscount, cart.lineTotals());
     }
 }
-
@@ -2,11 +2,24 @@ package com.monk.Commerce.MonkCommerce.service.strategy;
 
 import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
 import com.monk.Commerce.MonkCommerce.model.Cart;
-import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
 
 public interface CouponDiscountStrategy {
-    double calculateDiscount(Coupon coupon, Cart cart);
-    ApplicableCouponDTO checkApplicability(Coupon coupon, Cart cart);
-    void applyDiscount(Coupon coupon, Cart cart);
-}
+    // Single pass over the cart; callers should evaluate once and reuse the plan
+    DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart);
+
+    // Cheap value (minor units) that evaluate(...).getTotalDiscountMinor() can never exceed; used to prune best-coupon searches
+    long upperBound(CouponSnapshot coupon, PricedCart cart);
+
+    default double calculateDiscount(CouponSnapshot coupon, Cart cart) {
+        return evaluate(coupon, PricedCart.of(cart)).getTotalDiscount();
+    }
 
+    default ApplicableCouponDTO checkApplicability(CouponSnapshot coupon, Cart cart) {
+        return evaluate(coupon, PricedCart.of(cart)).toApplicableCoupon(coupon);
+    }
+
+    default void applyDiscount(CouponSnapshot coupon, Cart cart) {
+        evaluate(coupon, PricedCart.of(cart)).applyTo(cart);
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+// Reference implementations: the engine runs the evaluators CouponCompiler builds, which must agree with these
 @Component
 public class CouponStrategyFactory {
 
@@ -0,0 +1,68 @@
+package com.monk.Commerce.MonkCommerce.service.strategy;
+
+import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
+import com.monk.Commerce.MonkCommerce.model.Cart;
+import com.monk.Commerce.MonkCommerce.model.CartItem;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+import lombok.Getter;
+
+import java.util.List;
+
+// Result of evaluating one coupon against one cart: the total plus a discount per cart line, in cart order, in minor units
+public class DiscountPlan {
+
+    private static final DiscountPlan NONE = new DiscountPlan(0L, new long[0], null);
+
+    @Getter
+    private final long totalDiscountMinor;
+    private final long[] lineDiscounts;
+    @Getter
+    private final String reason;
+
+    public DiscountPlan(long totalDiscountMinor, long[] lineDiscounts, String reason) {
+        this.totalDiscountMinor = totalDiscountMinor;
+        this.lineDiscounts = lineDiscounts;
+        this.reason = reason;
+    }
+
+    public static DiscountPlan none() {
+        return NONE;
+    }
+
+    public boolean isApplicable() {
+        return totalDiscountMinor > 0;
+    }
+
+    public double getTotalDiscount() {
+        return Money.toMajor(totalDiscountMinor);
+    }
+
+    public long getLineDiscountMinor(int lineIndex) {
+        return lineIndex < lineDiscounts.length ? lineDiscounts[lineIndex] : 0L;
+    }
+
+    public ApplicableCouponDTO toApplicableCoupon(CouponSnapshot coupon) {
+        if (!isApplicable()) {
+            return null;
+        }
+        ApplicableCouponDTO dto = new ApplicableCouponDTO();
+        dto.setId(coupon.getId());
+        dto.setName(coupon.getName());
+        dto.setType(coupon.getType());
+        dto.setTotalDiscount(getTotalDiscount());
+        dto.setReason(reason);
+        return dto;
+    }
+
+    public void applyTo(Cart cart) {
+        List<CartItem> items = cart.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            long itemTotal = Money.toMinor(item.getOriginalPrice()) * item.getQuantity();
+            long itemDiscount = getLineDiscountMinor(i);
+            item.setDiscountAmount(Money.toMajor(itemDiscount));
+            item.setDiscountedPrice(Money.toMajor(itemTotal - itemDiscount));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.monk.Commerce.MonkCommerce.service.strategy;
+
+import com.monk.Commerce.MonkCommerce.model.Cart;
+import com.monk.Commerce.MonkCommerce.model.CartItem;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
+
+import java.util.List;
+
+// Engine view of a cart: primitive arrays in minor units, built once per request and shared by every strategy
+public final class PricedCart {
+
+    private final long[] productIds;
+    private final int[] quantities;
+    private final long[] catalogUnitPrices;
+    private final long[] lineTotals;
+    private final long total;
+
+    private PricedCart(long[] productIds, int[] quantities, long[] catalogUnitPrices, long[] lineTotals, long total) {
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.catalogUnitPrices = catalogUnitPrices;
+        this.lineTotals = lineTotals;
+        this.total = total;
+    }
+
+    public static PricedCart of(Cart cart) {
+        List<CartItem> items = cart.getItems();
+        int size = items.size();
+        long[] productIds = new long[size];
+        int[] quantities = new int[size];
+        long[] unitPrices = new long[size];
+        long[] catalogUnitPrices = new long[size];
+        for (int i = 0; i < size; i++) {
+            CartItem item = items.get(i);
+            Double catalogPrice = item.getProduct().getPrice();
+            productIds[i] = item.getProduct().getId();
+            quantities[i] = item.getQuantity();
+            unitPrices[i] = Money.toMinor(item.getOriginalPrice());
+            catalogUnitPrices[i] = catalogPrice != null ? Money.toMinor(catalogPrice) : unitPrices[i];
+        }
+        return of(productIds, quantities, unitPrices, catalogUnitPrices);
+    }
+
+    // Takes ownership of the arrays; all prices in minor units
+    public static PricedCart of(long[] productIds, int[] quantities, long[] unitPrices, long[] catalogUnitPrices) {
+        long[] lineTotals = new long[productIds.length];
+        long total = 0L;
+        for (int i = 0; i < lineTotals.length; i++) {
+            lineTotals[i] = unitPrices[i] * quantities[i];
+            total += lineTotals[i];
+        }
+        return new PricedCart(productIds, quantities, catalogUnitPrices, lineTotals, total);
+    }
+
+    public int size() {
+        return lineTotals.length;
+    }
+
+    public long productId(int line) {
+        return productIds[line];
+    }
+
+    public int quantity(int line) {
+        return quantities[line];
+    }
+
+    // Product list price; BxGy gives free items away at this price rather than the price quoted on the line
+    public long catalogUnitPrice(int line) {
+        return catalogUnitPrices[line];
+    }
+
+    public long lineTotal(int line) {
+        return lineTotals[line];
+    }
+
+    public long[] lineTotals() {
+        return lineTotals.clone();
+    }
+
+    public long total() {
+        return total;
+    }
+}
@@ -1,74 +1,56 @@
 package com.monk.Commerce.MonkCommerce.service.strategy;
 
-import com.monk.Commerce.MonkCommerce.dto.ApplicableCouponDTO;
-import com.monk.Commerce.MonkCommerce.model.Cart;
-import com.monk.Commerce.MonkCommerce.model.Coupon;
 import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import com.monk.Commerce.MonkCommerce.service.money.Money;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
-import java.util.Set;
-
 @Component
 public class ProductWiseStrategy implements CouponDiscountStrategy {
 
     @Override
-    public double calculateDiscount(Coupon coupon, Cart cart) {
-        double totalDiscount = 0.0;
-        Set<Long> applicableProductIds = new HashSet<>(coupon.getApplicableProductIds());
+    public DiscountPlan evaluate(CouponSnapshot coupon, PricedCart cart) {
+        ProductIdSet applicableProducts = coupon.getApplicableProducts();
+        if (applicableProducts.isEmpty()) {
+            return DiscountPlan.none();
+        }
+        long[] lineDiscounts = new long[cart.size()];
+        long totalDiscount = 0L;
 
-        for (var item : cart.getItems()) {
-            if (applicableProductIds.contains(item.getProduct().getId())) {
-                double itemTotal = item.getOriginalPrice() * item.getQuantity();
+        for (int i = 0; i < cart.size(); i++) {
+            if (applicableProducts.contains(cart.productId(i))) {
+                long itemTotal = cart.lineTotal(i);
+                long itemDiscount;
                 if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-                    totalDiscount += itemTotal * (coupon.getDiscountValue() / 100.0);
+                    itemDiscount = Money.percentage(itemTotal, coupon.getDiscountBasisPoints());
                 } else {
-                    totalDiscount += Math.min(coupon.getDiscountValue() * item.getQuantity(), itemTotal);
+                    itemDiscount = Math.min(coupon.getDiscountMinor() * cart.quantity(i), itemTotal);
                 }
+                lineDiscounts[i] = itemDiscount;
+                totalDiscount += itemDiscount;
             }
         }
 
-        return totalDiscount;
-    }
-
-    @Override
-    public ApplicableCouponDTO checkApplicability(Coupon coupon, Cart cart) {
-        if (coupon.getApplicableProductIds() == null || coupon.getApplicableProductIds().isEmpty()) {
-            return null;
-        }
-        double totalDiscount = calculateDiscount(coupon, cart);
         if (totalDiscount == 0) {
-            return null;
+            return DiscountPlan.none();
         }
-        ApplicableCouponDTO dto = new ApplicableCouponDTO();
-        dto.setId(coupon.getId());
-        dto.setName(coupon.getName());
-        dto.setType(coupon.getType());
-        dto.setTotalDiscount(totalDiscount);
-        dto.setReason("Cart contains applicable products");
-        return dto;
+        return new DiscountPlan(totalDiscount, lineDiscounts, "Cart contains applicable products");
     }
 
+    // Percentages are rounded per line as in evaluate: rounding the summed total instead can fall a few minor
+    // units short of the real discount, and best-k pruning would then skip a coupon that belongs in the result
     @Override
-    public void applyDiscount(Coupon coupon, Cart cart) {
-        Set<Long> applicableProductIds = new HashSet<>(coupon.getApplicableProductIds());
-
-        for (var item : cart.getItems()) {
-            if (applicableProductIds.contains(item.getProduct().getId())) {
-                double itemTotal = item.getOriginalPrice() * item.getQuantity();
-                double itemDiscount;
-                if (coupon.getDiscountType() == DiscountType.PERCENTAGE) {
-                    itemDiscount = itemTotal * (coupon.getDiscountValue() / 100.0);
-                } else {
-                    itemDiscount = Math.min(coupon.getDiscountValue() * item.getQuantity(), itemTotal);
-                }
-                item.setDiscountAmount(itemDiscount);
-                item.setDiscountedPrice(itemTotal - itemDiscount);
-            } else {
-                item.setDiscountAmount(0.0);
-                item.setDiscountedPrice(item.getOriginalPrice() * item.getQuantity());
+    public long upperBound(CouponSnapshot coupon, PricedCart cart) {
+        boolean percentage = coupon.getDiscountType() == DiscountType.PERCENTAGE;
+        long bound = 0L;
+        for (int i = 0; i < cart.size(); i++) {
+            if (coupon.getApplicableProducts().contains(cart.productId(i))) {
+                bound += percentage
+                        ? Money.percentage(cart.lineTotal(i), coupon.getDiscountBasisPoints())
+                        : cart.lineTotal(i);
             }
         }
+        return bound;
     }
 }
-
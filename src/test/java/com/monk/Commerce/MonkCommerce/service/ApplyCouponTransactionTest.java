@@ -0,0 +1,65 @@
+package com.monk.Commerce.MonkCommerce.service;
+
+import com.monk.Commerce.MonkCommerce.dto.CartFormatDTO;
+import com.monk.Commerce.MonkCommerce.dto.CartItemFormatDTO;
+import com.monk.Commerce.MonkCommerce.dto.CartRequestFormatDTO;
+import com.monk.Commerce.MonkCommerce.dto.CouponRequestDTO;
+import com.monk.Commerce.MonkCommerce.exception.CouponNotApplicableException;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.service.persistence.CartPersistence;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+// Goes through the service proxy, as the controller does, so the apply runs in the transaction Spring opens for it
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:apply-transaction")
+class ApplyCouponTransactionTest {
+
+    @Autowired private CouponService couponService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @SpyBean private CartPersistence cartPersistence;
+
+    @Test
+    void testApplyCouponFromFormat_failedSaveReturnsTokenAndCustomerCount() {
+
+        CouponRequestDTO request = new CouponRequestDTO();
+        request.setName("ONCE");
+        request.setType(CouponType.CART_WISE);
+        request.setDiscountType(DiscountType.PERCENTAGE);
+        request.setDiscountValue(10.0);
+        request.setMinimumCartTotal(1.0);
+        request.setMaxRedemptions(1);
+        request.setMaxRedemptionsPerCustomer(1);
+        Long couponId = couponService.createCoupon(request).getId();
+        CartRequestFormatDTO cart = new CartRequestFormatDTO(
+                new CartFormatDTO(List.of(new CartItemFormatDTO(1L, 2, null))));
+
+        doThrow(new DataIntegrityViolationException("cart insert failed")).when(cartPersistence).persist(any());
+        assertThrows(DataIntegrityViolationException.class,
+                () -> couponService.applyCouponFromFormat(couponId, cart, "alice"));
+        assertEquals(0, customerRedemptions(couponId, "alice"));
+
+        // Both the only global token and alice's single redemption are still available
+        doCallRealMethod().when(cartPersistence).persist(any());
+        assertNotNull(couponService.applyCouponFromFormat(couponId, cart, "alice"));
+        assertEquals(1, customerRedemptions(couponId, "alice"));
+        assertThrows(CouponNotApplicableException.class,
+                () -> couponService.applyCouponFromFormat(couponId, cart, "bob"));
+    }
+
+    private int customerRedemptions(Long couponId, String customerId) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(redemptions), 0) from coupon_customer_redemptions"
+                + " where coupon_id = ? and customer_id = ?", Integer.class, couponId, customerId);
+    }
+}
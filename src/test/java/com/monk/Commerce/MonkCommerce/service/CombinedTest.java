@@ -1,20 +1,82 @@
 package com.monk.Commerce.MonkCommerce.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.monk.Commerce.MonkCommerce.dto.*;
 import com.monk.Commerce.MonkCommerce.exception.*;
 import com.monk.Commerce.MonkCommerce.model.*;
 import com.monk.Commerce.MonkCommerce.repository.CartRepository;
+import com.monk.Commerce.MonkCommerce.repository.CatalogChangeRepository;
 import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
 import com.monk.Commerce.MonkCommerce.repository.ProductRepository;
+import com.monk.Commerce.MonkCommerce.service.batch.BatchEvaluator;
+import com.monk.Commerce.MonkCommerce.service.cache.ApplicableCouponsCache;
+import com.monk.Commerce.MonkCommerce.service.bulk.CouponImporter;
+import com.monk.Commerce.MonkCommerce.service.bulk.ImportFormat;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangeLog;
+import com.monk.Commerce.MonkCommerce.service.changelog.CatalogChangePoller;
+import com.monk.Commerce.MonkCommerce.service.catalog.CatalogFile;
+import com.monk.Commerce.MonkCommerce.service.catalog.CatalogFileStore;
+import com.monk.Commerce.MonkCommerce.service.catalog.CatalogSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCache;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductCacheInvalidator;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductIdSet;
+import com.monk.Commerce.MonkCommerce.service.catalog.ProductSnapshot;
+import com.monk.Commerce.MonkCommerce.service.catalog.ThresholdIndex;
+import com.monk.Commerce.MonkCommerce.service.catalog.ValidityTimeline;
+import com.monk.Commerce.MonkCommerce.service.metrics.CouponMetrics;
+import com.monk.Commerce.MonkCommerce.service.persistence.CartPersistence;
+import com.monk.Commerce.MonkCommerce.service.persistence.CouponPageReader;
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLedger;
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLimits;
+import com.monk.Commerce.MonkCommerce.service.session.CartSession;
+import com.monk.Commerce.MonkCommerce.service.session.CartSessions;
+import com.monk.Commerce.MonkCommerce.service.stacking.CouponStackOptimizer;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackCandidate;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackResult;
+import com.monk.Commerce.MonkCommerce.service.stacking.StackingPolicy;
 import com.monk.Commerce.MonkCommerce.service.strategy.*;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,8 +91,17 @@ public class CombinedTest {
     @Mock private CouponRepository couponRepository;
     @Mock private CartRepository cartRepository;
     @Mock private ProductRepository productRepository;
-    @Mock private CouponStrategyFactory strategyFactory;
-    @Mock private CouponDiscountStrategy mockStrategy;
+
+    @Mock private CouponCatalog couponCatalog;
+    @Mock private ProductCache productCache;
+    @Mock private CartPersistence cartPersistence;
+    @Mock private CouponPageReader couponPageReader;
+    @Mock private RedemptionLimits redemptionLimits;
+    @Mock private CatalogChangeLog changeLog;
+    @Spy private BatchEvaluator batchEvaluator = new BatchEvaluator(2, 10);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy private CouponMetrics couponMetrics = new CouponMetrics(meterRegistry);
+    @Spy private ApplicableCouponsCache applicableCouponsCache = new ApplicableCouponsCache(100);
 
     @InjectMocks
     private CouponService couponService;
@@ -43,6 +114,26 @@ public class CombinedTest {
     //COUPON SERVICE TESTS
 
 
+    @Test
+    void testGetCouponPage_cursorPointsAtLastReturnedCoupon() {
+
+        List<CouponResponseDTO> rows = new ArrayList<>();
+        for (long id : new long[]{12, 15, 19}) {
+            CouponResponseDTO dto = new CouponResponseDTO();
+            dto.setId(id);
+            rows.add(dto);
+        }
+        // one row more than the limit is read to detect a following page
+        when(couponPageReader.<CouponResponseDTO>read(eq(CouponType.CART_WISE), eq(true), eq(10L), eq(3), any()))
+                .thenReturn(rows);
+
+        CouponPageDTO page = couponService.getCouponPage("cart-wise", true, 10L, 2);
+
+        assertEquals(List.of(12L, 15L), page.getCoupons().stream().map(CouponResponseDTO::getId).toList());
+        assertEquals(15L, page.getNext_cursor());
+        assertThrows(IllegalArgumentException.class, () -> couponService.getCouponPage(null, null, null, 0));
+    }
+
     @Test
     void testApplyCoupon_successful() {
 
@@ -70,43 +161,13 @@ public class CombinedTest {
         cartRequestDTO.setItems(List.of(itemDTO));
 
         // product used in buildCartFromRequest
-        Product product = new Product();
-        product.setId(100L);
-        product.setName("Test Product");
-        when(productRepository.findById(100L))
-                .thenReturn(Optional.of(product));
-
-        when(couponRepository.findById(couponId))
-                .thenReturn(Optional.of(coupon));
-        when(strategyFactory.getStrategy(CouponType.CART_WISE))
-                .thenReturn(mockStrategy);
-
-        // make coupon applicable
-        ApplicableCouponDTO applicable = new ApplicableCouponDTO();
-        applicable.setId(couponId);
-        applicable.setName("SAVE10");
-        applicable.setType(CouponType.CART_WISE);
-        applicable.setTotalDiscount(20.0);
-        applicable.setReason("ok");
-        when(mockStrategy.checkApplicability(any(Coupon.class), any(Cart.class)))
-                .thenReturn(applicable);
-
-        // simulate discount distribution
-        doAnswer(invocation -> {
-            Coupon c = invocation.getArgument(0);
-            Cart cart = invocation.getArgument(1);
-            double totalAmount = cart.getTotalAmount(); // 200
-            double discount = totalAmount * (c.getDiscountValue() / 100.0); // 20
-            CartItem cartItem = cart.getItems().get(0);
-            cartItem.setDiscountAmount(discount);
-            cartItem.setDiscountedPrice(totalAmount - discount);
-            return null;
-        }).when(mockStrategy).applyDiscount(any(Coupon.class), any(Cart.class));
-
-        when(cartRepository.save(any(Cart.class)))
-                .thenAnswer(inv -> inv.getArgument(0));
-
-        CartResponseDTO response = couponService.applyCoupon(couponId, cartRequestDTO);
+        when(productCache.resolve(List.of(100L)))
+                .thenReturn(Map.of(100L, new ProductSnapshot(100L, "Test Product", 100.0)));
+
+        when(couponCatalog.snapshot())
+                .thenReturn(CatalogSnapshot.of(1L, List.of(CouponSnapshot.from(coupon)), Set.of(couponId)));
+        // coupon applies: 10% of 200, all on the single line
+        CartResponseDTO response = couponService.applyCoupon(couponId, cartRequestDTO, null);
 
         assertNotNull(response);
         assertEquals(couponId, response.getAppliedCouponId());
@@ -114,6 +175,10 @@ public class CombinedTest {
         assertEquals(200.0, response.getTotalAmount(), 0.001);
         assertEquals(20.0, response.getTotalDiscount(), 0.001);
         assertEquals(180.0, response.getFinalAmount(), 0.001);
+        assertEquals(20.0, response.getItems().get(0).getDiscountAmount(), 0.001);
+        assertEquals(180.0, response.getItems().get(0).getDiscountedPrice(), 0.001);
+        assertEquals(1.0, evaluatedCount("apply"), 0.001);
+        verify(cartPersistence).persist(any(Cart.class));
     }
 
 
@@ -122,14 +187,14 @@ public class CombinedTest {
     void testApplyCoupon_couponNotFound() {
 
         Long couponId = 99L;
-        when(couponRepository.findById(couponId))
-                .thenReturn(Optional.empty());
+        when(couponCatalog.snapshot())
+                .thenReturn(CatalogSnapshot.empty());
 
         CartRequestDTO cartRequestDTO = new CartRequestDTO();
         cartRequestDTO.setItems(List.of());
 
         assertThrows(CouponNotFoundException.class,
-                () -> couponService.applyCoupon(couponId, cartRequestDTO));
+                () -> couponService.applyCoupon(couponId, cartRequestDTO, null));
     }
 
     @Test
@@ -140,14 +205,14 @@ public class CombinedTest {
         coupon.setId(couponId);
         coupon.setIsActive(false);
 
-        when(couponRepository.findById(couponId))
-                .thenReturn(Optional.of(coupon));
+        when(couponCatalog.snapshot())
+                .thenReturn(CatalogSnapshot.of(1L, List.of(CouponSnapshot.from(coupon)), Set.of()));
 
         CartRequestDTO cartRequestDTO = new CartRequestDTO();
         cartRequestDTO.setItems(List.of());
 
         assertThrows(InvalidCouponException.class,
-                () -> couponService.applyCoupon(couponId, cartRequestDTO));
+                () -> couponService.applyCoupon(couponId, cartRequestDTO, null));
     }
 
     @Test
@@ -160,14 +225,633 @@ public class CombinedTest {
         coupon.setStartDate(LocalDateTime.now().plusDays(1)); // not started
         coupon.setEndDate(LocalDateTime.now().plusDays(5));
 
-        when(couponRepository.findById(couponId))
-                .thenReturn(Optional.of(coupon));
+        when(couponCatalog.snapshot())
+                .thenReturn(CatalogSnapshot.of(1L, List.of(CouponSnapshot.from(coupon)), Set.of()));
 
         CartRequestDTO cartRequestDTO = new CartRequestDTO();
         cartRequestDTO.setItems(List.of());
 
         assertThrows(InvalidCouponException.class,
-                () -> couponService.applyCoupon(couponId, cartRequestDTO));
+                () -> couponService.applyCoupon(couponId, cartRequestDTO, null));
+    }
+
+    @Test
+    void testCouponCodes_resolvedInMemoryCaseInsensitiveAndUnique() {
+
+        Coupon coupon = new Coupon();
+        coupon.setId(5L);
+        coupon.setCode("FLASH-10");
+        coupon.setIsActive(true);
+        when(couponCatalog.snapshot())
+                .thenReturn(CatalogSnapshot.of(1L, List.of(CouponSnapshot.from(coupon)), Set.of(5L)));
+
+        assertEquals(5L, couponCatalog.snapshot().findByCode(" flash-10 ").orElseThrow().getId());
+        assertTrue(couponCatalog.snapshot().findByCode("FLASH 10").isEmpty());
+
+        CartRequestFormatDTO cart = new CartRequestFormatDTO(new CartFormatDTO(List.of()));
+        assertThrows(CouponNotFoundException.class,
+                () -> couponService.applyCouponByCodeFromFormat("GUESS-01", cart, null));
+        assertThrows(CouponNotFoundException.class,
+                () -> couponService.applyCouponByCodeFromFormat("'; drop table coupons", cart, null));
+        assertEquals(2.0, meterRegistry.counter("coupon.code.lookups", "result", "unknown").count());
+
+        CouponRequestDTO request = new CouponRequestDTO();
+        request.setName("Copy");
+        request.setCode("Flash-10");
+        request.setType(CouponType.CART_WISE);
+        request.setDiscountType(DiscountType.PERCENTAGE);
+        request.setDiscountValue(5.0);
+        request.setMinimumCartTotal(10.0);
+        assertThrows(InvalidCouponException.class, () -> couponService.createCoupon(request));
+
+        verifyNoInteractions(couponRepository);
+    }
+
+
+    @Test
+    void testGetBestCoupons_stopsWhenBoundCannotBeatKthBest() {
+
+        List<CouponSnapshot> coupons = List.of(
+                percentageCoupon(1L, CouponType.CART_WISE, 50.0),
+                percentageCoupon(2L, CouponType.CART_WISE, 10.0),
+                percentageCoupon(3L, CouponType.PRODUCT_WISE, 30.0),
+                percentageCoupon(4L, CouponType.PRODUCT_WISE, 5.0));
+        when(couponCatalog.snapshot()).thenReturn(CatalogSnapshot.of(1L, coupons, Set.of(1L, 2L, 3L, 4L)));
+        when(productCache.resolve(List.of(100L)))
+                .thenReturn(Map.of(100L, new ProductSnapshot(100L, "Test Product", 100.0)));
+
+        CartItemDTO itemDTO = new CartItemDTO(100L, 1, null);
+        CartRequestDTO cartRequestDTO = new CartRequestDTO(List.of(itemDTO));
+
+        List<ApplicableCouponDTO> top1 = couponService.getBestCoupons(cartRequestDTO, 1);
+        assertEquals(1, top1.size());
+        assertEquals(1L, top1.get(0).getId());
+        assertEquals(50.0, top1.get(0).getTotalDiscount(), 0.001);
+        // coupon 1's exact discount beats every other bound, so it is the only coupon evaluated
+        assertEquals(1.0, evaluatedCount("best"), 0.001);
+
+        List<ApplicableCouponDTO> top2 = couponService.getBestCoupons(cartRequestDTO, 2);
+        assertEquals(List.of(1L, 3L), top2.stream().map(ApplicableCouponDTO::getId).toList());
+    }
+
+    @Test
+    void testGetApplicableCouponsFromFormat_cachesByFingerprintUntilCatalogChanges() {
+
+        List<CouponSnapshot> coupons = List.of(percentageCoupon(1L, CouponType.CART_WISE, 10.0));
+        when(couponCatalog.snapshot()).thenReturn(
+                CatalogSnapshot.of(1L, coupons, Set.of(1L)),
+                CatalogSnapshot.of(1L, coupons, Set.of(1L)),
+                CatalogSnapshot.of(1L, coupons, Set.of(1L)),
+                CatalogSnapshot.of(2L, coupons, Set.of(1L)));
+        when(productCache.resolve(List.of(100L)))
+                .thenReturn(Map.of(100L, new ProductSnapshot(100L, "Test Product", 100.0)));
+        CartRequestFormatDTO cart = new CartRequestFormatDTO(new CartFormatDTO(List.of(new CartItemFormatDTO(100L, 2, 50.0))));
+        CartRequestFormatDTO otherQuantity = new CartRequestFormatDTO(new CartFormatDTO(List.of(new CartItemFormatDTO(100L, 3, 50.0))));
+
+        ApplicableCouponsResponseDTO first = couponService.getApplicableCouponsFromFormat(cart);
+        ApplicableCouponsResponseDTO second = couponService.getApplicableCouponsFromFormat(cart);
+        assertSame(first, second);
+        assertEquals(10.0, first.getApplicable_coupons().get(0).getDiscount(), 0.001);
+        assertEquals(1.0, evaluatedCount("applicable"), 0.001);
+
+        couponService.getApplicableCouponsFromFormat(otherQuantity);
+        assertEquals(2.0, evaluatedCount("applicable"), 0.001);
+
+        // a new catalog version makes the earlier entry unreachable
+        ApplicableCouponsResponseDTO afterChange = couponService.getApplicableCouponsFromFormat(cart);
+        assertNotSame(first, afterChange);
+        assertEquals(3.0, evaluatedCount("applicable"), 0.001);
+    }
+
+    @Test
+    void testGetApplicableCouponsBatch_sharesProductLookupAndKeepsInputOrder() {
+
+        when(couponCatalog.snapshot()).thenReturn(
+                CatalogSnapshot.of(1L, List.of(percentageCoupon(1L, CouponType.CART_WISE, 10.0)), Set.of(1L)));
+        when(productCache.resolve(List.of(100L, 200L))).thenReturn(Map.of(
+                100L, new ProductSnapshot(100L, "Cheap", 5.0),
+                200L, new ProductSnapshot(200L, "Pricey", 100.0)));
+
+        List<CartRequestDTO> carts = List.of(
+                new CartRequestDTO(List.of(new CartItemDTO(100L, 1, null))),
+                new CartRequestDTO(List.of(new CartItemDTO(200L, 2, null), new CartItemDTO(100L, 1, null))),
+                new CartRequestDTO(List.of(new CartItemDTO(100L, 1, null))));
+
+        List<List<ApplicableCouponDTO>> results = couponService.getApplicableCouponsBatch(carts);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isEmpty());
+        assertEquals(20.5, results.get(1).get(0).getTotalDiscount(), 0.001);
+        assertTrue(results.get(2).isEmpty());
+        verify(productCache, times(1)).resolve(anyList());
+        verify(couponCatalog, times(1)).snapshot();
+
+        List<CartRequestDTO> oversized = Collections.nCopies(11, carts.get(0));
+        assertThrows(IllegalArgumentException.class, () -> couponService.getApplicableCouponsBatch(oversized));
+    }
+
+    @Test
+    void testGetApplicableCoupons_recordsEvaluationMetrics() {
+
+        when(couponCatalog.snapshot()).thenReturn(CatalogSnapshot.of(1L, List.of(
+                percentageCoupon(1L, CouponType.CART_WISE, 10.0),
+                percentageCoupon(2L, CouponType.CART_WISE, 20.0)), Set.of(1L, 2L)));
+        when(productCache.resolve(List.of(200L)))
+                .thenReturn(Map.of(200L, new ProductSnapshot(200L, "Pricey", 100.0)));
+
+        couponService.getApplicableCoupons(new CartRequestDTO(List.of(new CartItemDTO(200L, 1, null))));
+
+        DistributionSummary evaluated = meterRegistry.get("coupon.candidates.evaluated").tag("operation", "applicable").summary();
+        DistributionSummary matched = meterRegistry.get("coupon.candidates.matched").tag("operation", "applicable").summary();
+        assertEquals(1, evaluated.count());
+        assertEquals(2.0, evaluated.totalAmount(), 0.001);
+        assertEquals(2.0, matched.totalAmount(), 0.001);
+        assertEquals(1, meterRegistry.get("coupon.evaluation").tag("type", "CART_WISE").timer().count());
+        assertEquals(0, meterRegistry.get("coupon.evaluation").tag("type", "BXGY").timer().count());
+        assertEquals(1.0, meterRegistry.get("coupon.product.lookups").counter().count(), 0.001);
+    }
+
+    @Test
+    void testGetApplicableCoupons_sampledEvaluationTimeCoversEveryCandidate() {
+
+        List<CouponSnapshot> coupons = new ArrayList<>();
+        Set<Long> liveIds = new HashSet<>();
+        for (long id = 1; id <= 33; id++) {
+            coupons.add(percentageCoupon(id, CouponType.CART_WISE, 10.0));
+            liveIds.add(id);
+        }
+        when(couponCatalog.snapshot()).thenReturn(CatalogSnapshot.of(1L, coupons, liveIds));
+        when(productCache.resolve(List.of(200L)))
+                .thenReturn(Map.of(200L, new ProductSnapshot(200L, "Pricey", 100.0)));
+
+        couponService.getApplicableCoupons(new CartRequestDTO(List.of(new CartItemDTO(200L, 1, null))));
+
+        // Three of the 33 candidates are timed, but the request still publishes one scaled-up sample
+        Timer timer = meterRegistry.get("coupon.evaluation").tag("type", "CART_WISE").timer();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(33.0, meterRegistry.get("coupon.candidates.evaluated").tag("operation", "applicable")
+                .summary().totalAmount(), 0.001);
+    }
+
+    private static CouponSnapshot percentageCoupon(Long id, CouponType type, double percentage) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName("C" + id);
+        coupon.setType(type);
+        coupon.setDiscountType(DiscountType.PERCENTAGE);
+        coupon.setDiscountValue(percentage);
+        coupon.setMinimumCartTotal(type == CouponType.CART_WISE ? 10.0 : null);
+        coupon.setApplicableProductIds(type == CouponType.PRODUCT_WISE ? List.of(100L) : null);
+        coupon.setIsActive(true);
+        return CouponSnapshot.from(coupon);
+    }
+
+    // Coupons evaluated so far for one operation, summed over requests
+    private double evaluatedCount(String operation) {
+        return meterRegistry.get("coupon.candidates.evaluated").tag("operation", operation).summary().totalAmount();
+    }
+
+
+    //STACKING OPTIMIZER
+
+    @Test
+    void testStackOptimizer_combinesStackableCouponsWithinLineCaps() {
+
+        CouponStackOptimizer optimizer = new CouponStackOptimizer(10, Duration.ofSeconds(1));
+        long[] lineTotals = {10_000L, 5_000L};
+        List<StackCandidate> candidates = List.of(
+                stackCandidate(1L, CouponType.CART_WISE, 1_000L, 500L),
+                stackCandidate(2L, CouponType.PRODUCT_WISE, 9_000L, 0L),
+                stackCandidate(3L, CouponType.PRODUCT_WISE, 2_000L, 0L),
+                stackCandidate(4L, CouponType.BXGY, 0L, 5_000L));
+        Set<CouponType> stackable = Set.of(CouponType.CART_WISE, CouponType.PRODUCT_WISE);
+
+        StackResult stacked = optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 3, Duration.ofSeconds(1)));
+        assertTrue(stacked.isComplete());
+        assertEquals(105.0, stacked.getTotalDiscount(), 0.001);
+        assertEquals(Set.of(1L, 2L), stacked.getCoupons().stream()
+                .map(c -> c.getCoupon().getId()).collect(Collectors.toSet()));
+
+        StackResult single = optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 1, Duration.ofSeconds(1)));
+        assertEquals(90.0, single.getTotalDiscount(), 0.001);
+        assertEquals(1, single.getCoupons().size());
+    }
+
+    @Test
+    void testStackOptimizer_returnsBestSoFarWhenBudgetExhausted() {
+
+        java.util.Random random = new Random(42);
+        long[] lineTotals = new long[12];
+        for (int i = 0; i < lineTotals.length; i++) {
+            lineTotals[i] = 5_000L + random.nextInt(20_000);
+        }
+        List<StackCandidate> candidates = new ArrayList<>();
+        for (long id = 1; id <= 60; id++) {
+            long[] allocations = new long[lineTotals.length];
+            for (int i = 0; i < allocations.length; i++) {
+                allocations[i] = random.nextInt(4) == 0 ? random.nextInt(6_000) : 0L;
+            }
+            candidates.add(stackCandidate(id, CouponType.PRODUCT_WISE, allocations));
+        }
+
+        StackResult result = new CouponStackOptimizer(10, Duration.ofSeconds(1)).optimize(candidates, lineTotals,
+                new StackingPolicy(Set.of(CouponType.PRODUCT_WISE), 8, Duration.ZERO));
+
+        assertFalse(result.isComplete());
+        assertFalse(result.getCoupons().isEmpty());
+        assertTrue(result.getTotalDiscount() > 0);
+    }
+
+    @Test
+    void testStackOptimizer_recursionDepthFollowsStackSizeNotCandidateCount() {
+
+        // Every coupon but the last only discounts a line that the first one already fills, so all of them are
+        // tried without gain before the one that adds something; skipping them used to cost a stack frame each
+        long[] lineTotals = {500L, 100_000L};
+        List<StackCandidate> candidates = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            candidates.add(stackCandidate(id, CouponType.CART_WISE, 500L, 0L));
+        }
+        candidates.add(stackCandidate(100_001L, CouponType.CART_WISE, 0L, 100L));
+
+        StackResult result = new CouponStackOptimizer(10, Duration.ofSeconds(30)).optimize(candidates, lineTotals,
+                new StackingPolicy(Set.of(CouponType.CART_WISE), 10, Duration.ofSeconds(30)));
+
+        assertTrue(result.isComplete());
+        assertEquals(6.0, result.getTotalDiscount(), 0.001);
+        assertEquals(Set.of(1L, 100_001L), result.getCoupons().stream()
+                .map(c -> c.getCoupon().getId()).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testStackOptimizer_rejectsPoliciesAboveServerLimits() {
+
+        CouponStackOptimizer optimizer = new CouponStackOptimizer(5, Duration.ofMillis(200));
+        long[] lineTotals = {10_000L};
+        List<StackCandidate> candidates = List.of(stackCandidate(1L, CouponType.CART_WISE, 1_000L));
+        Set<CouponType> stackable = Set.of(CouponType.CART_WISE);
+
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 6, Duration.ofMillis(50))));
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 5, Duration.ofMillis(201))));
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 5, Duration.ofMillis(-1))));
+        assertEquals(10.0, optimizer.optimize(candidates, lineTotals,
+                new StackingPolicy(stackable, 5, Duration.ofMillis(200))).getTotalDiscount(), 0.001);
+    }
+
+    private static StackCandidate stackCandidate(Long id, CouponType type, long... lineDiscounts) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType(type);
+        long total = Arrays.stream(lineDiscounts).sum();
+        return new StackCandidate(CouponSnapshot.from(coupon), new DiscountPlan(total, lineDiscounts, "test"));
+    }
+
+
+    //CART PERSISTENCE
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCartPersistence_writeBehindBatchesAndDrainsOnShutdown() throws InterruptedException {
+
+        CartPersistence writeBehind = new CartPersistence(cartRepository, couponRepository,
+                mock(PlatformTransactionManager.class),
+                new CouponMetrics(new SimpleMeterRegistry()), CartPersistence.Durability.ASYNC, 100, 10);
+        List<Cart> carts = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Cart cart = new Cart();
+            cart.setTotalAmount((double) i);
+            carts.add(cart);
+            writeBehind.persist(cart);
+        }
+        writeBehind.shutdown();
+
+        ArgumentCaptor<List<Cart>> batches = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository, atLeastOnce()).saveAll(batches.capture());
+        assertEquals(25, batches.getAllValues().stream().mapToInt(List::size).sum());
+        assertTrue(batches.getAllValues().stream().allMatch(batch -> batch.size() <= 10));
+        // The writer saves copies; the caller's carts, still read for the response, are never touched by it
+        assertTrue(batches.getAllValues().stream().flatMap(List::stream)
+                .noneMatch(saved -> carts.stream().anyMatch(cart -> cart == saved)));
+        assertEquals(carts.stream().map(Cart::getTotalAmount).collect(Collectors.toSet()),
+                batches.getAllValues().stream().flatMap(List::stream).map(Cart::getTotalAmount)
+                        .collect(Collectors.toSet()));
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCartPersistence_retriesFailedBatchesAndCountsDroppedCarts() throws InterruptedException {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CartPersistence writeBehind = new CartPersistence(cartRepository, couponRepository,
+                mock(PlatformTransactionManager.class), new CouponMetrics(registry),
+                CartPersistence.Durability.ASYNC, 100, 10);
+        List<Double> saved = Collections.synchronizedList(new ArrayList<>());
+        when(cartRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<Cart> carts = inv.getArgument(0);
+            if (carts.stream().anyMatch(cart -> cart.getTotalAmount() == 13.0)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            carts.forEach(cart -> saved.add(cart.getTotalAmount()));
+            return carts;
+        });
+        for (int i = 10; i < 15; i++) {
+            Cart cart = new Cart();
+            cart.setTotalAmount((double) i);
+            writeBehind.persist(cart);
+        }
+        writeBehind.shutdown();
+
+        // Only the bad cart is lost; the rest of its batch is saved one by one
+        assertEquals(Set.of(10.0, 11.0, 12.0, 14.0), Set.copyOf(saved));
+        assertEquals(1.0, registry.get("coupon.cart.persistence.dropped").counter().count(), 0.001);
+
+        // After shutdown, carts are saved in the caller's transaction, flushed so the timer covers the INSERT
+        writeBehind.persist(new Cart());
+        verify(cartRepository).saveAndFlush(any(Cart.class));
+    }
+
+
+    //BULK IMPORT
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCoupons_ndjsonReportsBadLinesAndPublishesCatalogOnce() {
+
+        when(productRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(couponRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            long id = 100;
+            for (Coupon coupon : (Iterable<Coupon>) inv.getArgument(0)) {
+                coupon.setId(id++);
+            }
+            return inv.getArgument(0);
+        });
+        String body = String.join("\n",
+                "{\"name\":\"TEN\",\"type\":\"CART_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":10,\"minimumCartTotal\":100}",
+                "",
+                "{\"type\":\"CART_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":10,\"minimumCartTotal\":100}",
+                "{\"name\":\"P\",\"type\":\"PRODUCT_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":20,\"applicableProductIds\":[1,99]}",
+                "{\"name\":\"B2G1\",\"type\":\"BXGY\",\"discountType\":\"PERCENTAGE\",\"discountValue\":100,\"buyQuantity\":2,\"getQuantity\":1,\"buyProductIds\":[1,2],\"freeProductIds\":[3]}",
+                "{not json");
+
+        CouponImportReportDTO report = importService(2).importCoupons(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(List.of(3, 4, 6), report.getErrors().stream().map(ImportErrorDTO::getLine).toList());
+        assertEquals("Coupon name is required", report.getErrors().get(0).getMessage());
+        assertEquals("Product not found with id: 99", report.getErrors().get(1).getMessage());
+        verify(couponRepository, times(1)).saveAll(anyIterable());
+        verify(couponRepository, never()).save(any(Coupon.class));
+        ArgumentCaptor<Collection<CouponSnapshot>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(couponCatalog, times(1)).putAll(published.capture(), any());
+        assertEquals(List.of(100L, 101L), published.getValue().stream().map(CouponSnapshot::getId).toList());
+        verify(changeLog).recordCoupons(List.of(100L, 101L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCoupons_csvWithQuotedCellsAndIdLists() {
+
+        when(productRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L));
+        String body = "name,type,discountType,discountValue,buyQuantity,getQuantity,buyProductIds,freeProductIds\n"
+                + "\"Buy 2, get \"\"one\"\"\",BXGY,PERCENTAGE,100,2,1,1|2,3\n";
+
+        CouponImportReportDTO report = importService(500).importCoupons(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+
+        assertEquals(1, report.getImported());
+        assertEquals(0, report.getFailed());
+        ArgumentCaptor<Collection<CouponSnapshot>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(couponCatalog).putAll(published.capture(), any());
+        CouponSnapshot coupon = published.getValue().iterator().next();
+        assertEquals("Buy 2, get \"one\"", coupon.getName());
+        assertEquals(List.of(1L, 2L), coupon.getBuyProductIds());
+        assertEquals(List.of(3L), coupon.getFreeProductIds());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCoupons_failedBatchReportsOnlyTheRejectedRows() {
+
+        when(productRepository.findAllIds()).thenReturn(List.of());
+        AtomicLong ids = new AtomicLong(100);
+        when(couponRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<Coupon> coupons = (List<Coupon>) inv.getArgument(0);
+            if (coupons.stream().anyMatch(coupon -> coupon.getName().equals("TOO-LONG"))) {
+                throw new DataIntegrityViolationException("Value too long for column NAME");
+            }
+            coupons.forEach(coupon -> coupon.setId(ids.getAndIncrement()));
+            return coupons;
+        });
+        String body = String.join("\n",
+                "{\"name\":\"A\",\"type\":\"CART_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":10,\"minimumCartTotal\":100}",
+                "{\"name\":\"TOO-LONG\",\"type\":\"CART_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":10,\"minimumCartTotal\":100}",
+                "{\"name\":\"C\",\"type\":\"CART_WISE\",\"discountType\":\"PERCENTAGE\",\"discountValue\":10,\"minimumCartTotal\":100}");
+
+        CouponImportReportDTO report = importService(3).importCoupons(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(2), report.getErrors().stream().map(ImportErrorDTO::getLine).toList());
+        assertEquals("Insert failed: Value too long for column NAME", report.getErrors().get(0).getMessage());
+        ArgumentCaptor<Collection<CouponSnapshot>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(couponCatalog).putAll(published.capture(), any());
+        assertEquals(List.of("A", "C"), published.getValue().stream().map(CouponSnapshot::getName).toList());
+    }
+
+    private CouponService importService(int batchSize) {
+        CouponImporter importer = new CouponImporter(couponRepository, productRepository, couponCatalog, changeLog,
+                mock(EntityManager.class), mock(PlatformTransactionManager.class),
+                new ObjectMapper().findAndRegisterModules(), batchSize);
+        return new CouponService(couponRepository, couponCatalog, productCache, null,
+                batchEvaluator, couponMetrics, cartPersistence, importer, couponPageReader, null, null, applicableCouponsCache,
+                redemptionLimits, changeLog);
+    }
+
+
+    //CART SESSIONS
+
+    @Test
+    void testCartSession_incrementalResultsMatchFullEvaluation() {
+
+        CouponStrategyFactory reference =
+                new CouponStrategyFactory(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy());
+        List<CouponSnapshot> coupons = List.of(
+                sessionCoupon(1L, CouponType.CART_WISE, DiscountType.PERCENTAGE, 10.0, List.of()),
+                sessionCoupon(2L, CouponType.CART_WISE, DiscountType.FIXED_AMOUNT, 25.0, List.of()),
+                sessionCoupon(3L, CouponType.PRODUCT_WISE, DiscountType.PERCENTAGE, 20.0, List.of(2L)),
+                sessionCoupon(4L, CouponType.PRODUCT_WISE, DiscountType.FIXED_AMOUNT, 3.0, List.of(4L, 5L)),
+                sessionCoupon(5L, CouponType.BXGY, DiscountType.PERCENTAGE, 100.0, List.of(1L, 2L)),
+                sessionCoupon(6L, CouponType.PRODUCT_WISE, DiscountType.PERCENTAGE, 5.0, List.of(6L)));
+        CatalogSnapshot catalog = CatalogSnapshot.of(1L, coupons, Set.of(1L, 2L, 3L, 4L, 5L, 6L));
+        when(couponCatalog.snapshot()).thenReturn(catalog);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CartSessions sessions = new CartSessions(couponCatalog, new CouponMetrics(registry), Duration.ofMinutes(5), 10);
+        DistributionSummary evaluated = registry.get("coupon.candidates.evaluated").tag("operation", "session").summary();
+
+        String sessionId = sessions.create().id();
+        Random random = new Random(42);
+        for (int step = 0; step < 300; step++) {
+            if (step == 150) {
+                // a catalog change (coupon 3 deactivated) must be picked up without any line change
+                catalog = CatalogSnapshot.of(2L, coupons, Set.of(1L, 2L, 4L, 5L, 6L));
+                when(couponCatalog.snapshot()).thenReturn(catalog);
+                assertSessionMatchesFullEvaluation(sessions.view(sessionId), catalog, reference);
+            }
+            long productId = 1 + random.nextInt(6);
+            int quantity = 1 + random.nextInt(4);
+            long price = 500L * (1 + random.nextInt(6));
+            int action = random.nextInt(3);
+            double evaluatedBefore = evaluated.totalAmount();
+            CartSession.View view = sessions.change(sessionId, productId, line -> switch (action) {
+                case 0 -> new CartSession.Line(quantity, price, 1_000L);
+                case 1 -> line == null ? null : new CartSession.Line(line.quantity() + quantity, price, 1_000L);
+                default -> null;
+            });
+            assertSessionMatchesFullEvaluation(view, catalog, reference);
+            if (step != 150) {
+                // only the changed product's posting list is re-evaluated, plus the cart-wise coupons the total reaches
+                List<CouponSnapshot> postings = catalog.getProductIndex().getOrDefault(productId, List.of());
+                long productCoupons = postings.stream().filter(c -> c.getType() != CouponType.CART_WISE).count();
+                long cartWiseCoupons = catalog.getCartWiseIndex().qualifying(view.total()).size();
+                assertEquals(productCoupons + cartWiseCoupons, evaluated.totalAmount() - evaluatedBefore, 0.001);
+            }
+        }
+    }
+
+    private static void assertSessionMatchesFullEvaluation(CartSession.View view, CatalogSnapshot catalog,
+                                                           CouponStrategyFactory factory) {
+        int size = view.lines().size();
+        long[] productIds = new long[size];
+        int[] quantities = new int[size];
+        long[] unitPrices = new long[size];
+        long[] catalogUnitPrices = new long[size];
+        int i = 0;
+        for (Map.Entry<Long, CartSession.Line> line : view.lines().entrySet()) {
+            productIds[i] = line.getKey();
+            quantities[i] = line.getValue().quantity();
+            unitPrices[i] = line.getValue().unitPrice();
+            catalogUnitPrices[i++] = line.getValue().catalogUnitPrice();
+        }
+        PricedCart cart = PricedCart.of(productIds, quantities, unitPrices, catalogUnitPrices);
+        Map<Long, Double> expected = new TreeMap<>();
+        for (CouponSnapshot coupon : catalog.getLiveCoupons()) {
+            DiscountPlan plan = factory.getStrategy(coupon.getType()).evaluate(coupon, cart);
+            if (plan.isApplicable()) {
+                expected.put(coupon.getId(), plan.getTotalDiscount());
+            }
+        }
+        Map<Long, Double> actual = new TreeMap<>();
+        view.applicableCoupons().forEach(coupon -> actual.put(coupon.getId(), coupon.getTotalDiscount()));
+        assertEquals(expected, actual);
+        assertEquals(cart.total(), view.total());
+    }
+
+    private static CouponSnapshot sessionCoupon(Long id, CouponType type, DiscountType discountType, double value,
+                                                List<Long> productIds) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName("S" + id);
+        coupon.setType(type);
+        coupon.setDiscountType(discountType);
+        coupon.setDiscountValue(value);
+        coupon.setIsActive(true);
+        if (type == CouponType.CART_WISE) {
+            coupon.setMinimumCartTotal(discountType == DiscountType.FIXED_AMOUNT ? 200.0 : 50.0);
+        } else if (type == CouponType.PRODUCT_WISE) {
+            coupon.setApplicableProductIds(productIds);
+        } else {
+            coupon.setBuyQuantity(2);
+            coupon.setGetQuantity(1);
+            coupon.setBuyProductIds(productIds);
+            coupon.setFreeProductIds(List.of(3L));
+            coupon.setMaxRepetitions(2);
+        }
+        return CouponSnapshot.from(coupon);
+    }
+
+
+    //REDEMPTION LIMITS
+
+    @Test
+    void testRedemptionLimits_capIsNeverOversoldUnderConcurrency() throws Exception {
+
+        long cap = 10_000L;
+        AtomicLong reserved = new AtomicLong();
+        RedemptionLedger ledger = mock(RedemptionLedger.class);
+        // Same grant rule as the counter row: up to a block, never past the cap
+        when(ledger.reserve(eq(7L), anyLong(), eq(64L))).thenAnswer(invocation -> {
+            synchronized (reserved) {
+                long granted = Math.max(0L, Math.min(64L, (long) invocation.getArgument(1) - reserved.get()));
+                reserved.addAndGet(granted);
+                return granted;
+            }
+        });
+        RedemptionLimits limits = new RedemptionLimits(ledger, 64);
+        CouponSnapshot coupon = cappedCoupon(7L, (int) cap, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                int redeemed = 0;
+                for (int i = 0; i < 2_000; i++) {
+                    try {
+                        limits.redeem(coupon, null);
+                        redeemed++;
+                    } catch (CouponNotApplicableException e) {
+                        // sold out
+                    }
+                }
+                return redeemed;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(cap, total);
+        assertEquals(cap, reserved.get());
+    }
+
+    @Test
+    void testRedemptionLimits_customerRejectionReturnsGlobalToken() {
+
+        RedemptionLedger ledger = mock(RedemptionLedger.class);
+        when(ledger.reserve(8L, 1L, 100L)).thenReturn(1L);
+        when(ledger.recordCustomerRedemption(8L, "alice", 1)).thenReturn(false);
+        when(ledger.recordCustomerRedemption(8L, "bob", 1)).thenReturn(true);
+        RedemptionLimits limits = new RedemptionLimits(ledger, 100);
+        CouponSnapshot coupon = cappedCoupon(8L, 1, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> limits.redeem(coupon, null));
+        assertThrows(CouponNotApplicableException.class, () -> limits.redeem(coupon, "alice"));
+        // alice's rejection put the only token back, so bob gets it without another reservation
+        assertNotNull(limits.redeem(coupon, "bob"));
+        verify(ledger, times(1)).reserve(anyLong(), anyLong(), anyLong());
+    }
+
+    private CouponSnapshot cappedCoupon(long id, Integer maxRedemptions, Integer maxRedemptionsPerCustomer) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setName("FLASH");
+        coupon.setType(CouponType.CART_WISE);
+        coupon.setDiscountType(DiscountType.PERCENTAGE);
+        coupon.setDiscountValue(10.0);
+        coupon.setMinimumCartTotal(1.0);
+        coupon.setMaxRedemptions(maxRedemptions);
+        coupon.setMaxRedemptionsPerCustomer(maxRedemptionsPerCustomer);
+        return CouponSnapshot.from(coupon);
     }
 
 
@@ -235,10 +919,10 @@ public class CombinedTest {
         coupon.setDiscountValue(10.0);
         coupon.setApplicableProductIds(List.of(100L));
 
-        double discount = strat.calculateDiscount(coupon, cart);
+        double discount = strat.calculateDiscount(CouponSnapshot.from(coupon), cart);
         assertEquals(20.0, discount, 0.001);
 
-        strat.applyDiscount(coupon, cart);
+        strat.applyDiscount(CouponSnapshot.from(coupon), cart);
         assertEquals(20.0, item.getDiscountAmount(), 0.001);
         assertEquals(180.0, item.getDiscountedPrice(), 0.001);
     }
@@ -272,23 +956,509 @@ public class CombinedTest {
         coupon.setDiscountValue(20.0);
         coupon.setMinimumCartTotal(0.0);
 
-        double discount = strat.calculateDiscount(coupon, cart);
+        double discount = strat.calculateDiscount(CouponSnapshot.from(coupon), cart);
         assertEquals(60.0, discount, 0.001);
 
-        strat.applyDiscount(coupon, cart);
+        strat.applyDiscount(CouponSnapshot.from(coupon), cart);
         assertEquals(60.0, item.getDiscountAmount(), 0.001);
         assertEquals(240.0, item.getDiscountedPrice(), 0.001);
     }
 
 
+    @Test
+    void testCartWiseStrategy_allocatesDiscountToThePenny() {
+
+        Cart cart = new Cart();
+        List<CartItem> items = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            CartItem item = new CartItem();
+            item.setProduct(new Product(id, "P" + id, 10.0, null));
+            item.setQuantity(1);
+            item.setOriginalPrice(10.0);
+            items.add(item);
+        }
+        cart.setItems(items);
+        cart.setTotalAmount(30.0);
+
+        Coupon coupon = new Coupon();
+        coupon.setType(CouponType.CART_WISE);
+        coupon.setDiscountType(DiscountType.FIXED_AMOUNT);
+        coupon.setDiscountValue(10.0);
+
+        DiscountPlan plan = new CartWiseStrategy().evaluate(CouponSnapshot.from(coupon), PricedCart.of(cart));
+
+        assertEquals(1000L, plan.getTotalDiscountMinor());
+        assertArrayEquals(new long[]{333L, 334L, 333L},
+                new long[]{plan.getLineDiscountMinor(0), plan.getLineDiscountMinor(1), plan.getLineDiscountMinor(2)});
+    }
+
+
+    //COUPON COMPILER
+
+    @Test
+    void testCompiledCoupons_matchReferenceStrategies() {
+
+        CouponStrategyFactory reference =
+                new CouponStrategyFactory(new CartWiseStrategy(), new ProductWiseStrategy(), new BxGyStrategy());
+        Random random = new Random(11);
+        double[] values = {0.0, 5.0, 12.5, 33.33, 100.0, 7.99};
+        for (int c = 0; c < 500; c++) {
+            Coupon coupon = new Coupon();
+            coupon.setId((long) c);
+            coupon.setType(CouponType.values()[random.nextInt(CouponType.values().length)]);
+            coupon.setDiscountType(random.nextInt(5) == 0 ? null : DiscountType.values()[random.nextInt(2)]);
+            coupon.setDiscountValue(values[random.nextInt(values.length)]);
+            coupon.setMinimumCartTotal(random.nextBoolean() ? null : (double) random.nextInt(200));
+            coupon.setApplicableProductIds(randomProductIds(random));
+            coupon.setBuyProductIds(randomProductIds(random));
+            coupon.setFreeProductIds(randomProductIds(random));
+            coupon.setBuyQuantity(1 + random.nextInt(3));
+            coupon.setGetQuantity(random.nextInt(3));
+            coupon.setMaxRepetitions(random.nextBoolean() ? null : random.nextInt(3));
+            CouponSnapshot snapshot = CouponSnapshot.from(coupon);
+            CouponDiscountStrategy strategy = reference.getStrategy(snapshot.getType());
+
+            for (int k = 0; k < 20; k++) {
+                int size = random.nextInt(7);
+                long[] productIds = new long[size];
+                int[] quantities = new int[size];
+                long[] unitPrices = new long[size];
+                long[] catalogUnitPrices = new long[size];
+                for (int i = 0; i < size; i++) {
+                    productIds[i] = 1 + random.nextInt(8);
+                    quantities[i] = 1 + random.nextInt(5);
+                    unitPrices[i] = 1 + random.nextInt(10_000);
+                    catalogUnitPrices[i] = 1 + random.nextInt(10_000);
+                }
+                PricedCart cart = PricedCart.of(productIds, quantities, unitPrices, catalogUnitPrices);
+
+                DiscountPlan expected = strategy.evaluate(snapshot, cart);
+                DiscountPlan actual = snapshot.getEvaluator().evaluate(cart);
+                assertEquals(expected.getTotalDiscountMinor(), actual.getTotalDiscountMinor());
+                assertEquals(expected.getReason(), actual.getReason());
+                for (int i = 0; i < size; i++) {
+                    assertEquals(expected.getLineDiscountMinor(i), actual.getLineDiscountMinor(i));
+                }
+                // Bounds only differ for coupons compiled to "never applies", where they drop to zero
+                long bound = snapshot.getEvaluator().upperBound(cart);
+                long expectedBound = strategy.upperBound(snapshot, cart);
+                assertTrue(bound == expectedBound || (bound == 0L && !actual.isApplicable()));
+                assertTrue(bound >= actual.getTotalDiscountMinor());
+                assertTrue(expectedBound >= expected.getTotalDiscountMinor());
+            }
+        }
+    }
+
+    @Test
+    void testProductWiseBound_coversPerLineRounding() {
+
+        Coupon coupon = new Coupon();
+        coupon.setId(1L);
+        coupon.setType(CouponType.PRODUCT_WISE);
+        coupon.setDiscountType(DiscountType.PERCENTAGE);
+        coupon.setDiscountValue(10.0);
+        coupon.setApplicableProductIds(List.of(1L, 2L, 3L));
+        CouponSnapshot snapshot = CouponSnapshot.from(coupon);
+        // Three 5-cent lines: each rounds 0.5 up to one cent, while 10% of the 15-cent total rounds to two
+        PricedCart cart = PricedCart.of(new long[]{1L, 2L, 3L}, new int[]{1, 1, 1}, new long[]{5L, 5L, 5L},
+                new long[]{5L, 5L, 5L});
+
+        ProductWiseStrategy strategy = new ProductWiseStrategy();
+        assertEquals(3L, strategy.evaluate(snapshot, cart).getTotalDiscountMinor());
+        assertEquals(3L, strategy.upperBound(snapshot, cart));
+        assertEquals(3L, snapshot.getEvaluator().evaluate(cart).getTotalDiscountMinor());
+        assertEquals(3L, snapshot.getEvaluator().upperBound(cart));
+    }
+
+    private static List<Long> randomProductIds(Random random) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            ids.add(1L + random.nextInt(8));
+        }
+        return ids;
+    }
+
+
+    //PRODUCT CACHE
+
+    @Test
+    void testProductCache_batchesMissesAndCachesHits() {
+
+        ProductCache cache = new ProductCache(productRepository, 100);
+        when(productRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(new Product(1L, "Laptop", 999.99, null), new Product(2L, "Mouse", 29.99, null)));
+
+        Map<Long, ProductSnapshot> first = cache.resolve(List.of(1L, 2L));
+        Map<Long, ProductSnapshot> second = cache.resolve(List.of(2L, 1L));
+
+        assertEquals(999.99, first.get(1L).getPrice(), 0.001);
+        assertEquals("Mouse", second.get(2L).getName());
+        verify(productRepository, times(1)).findAllById(anyIterable());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testProductCache_reportsEveryMissingProduct() {
+
+        ProductCache cache = new ProductCache(productRepository, 100);
+        when(productRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(new Product(1L, "Laptop", 999.99, null)));
+
+        ProductNotFoundException ex = assertThrows(ProductNotFoundException.class,
+                () -> cache.resolve(List.of(7L, 1L, 3L)));
+        assertEquals("Products not found with ids: [3, 7]", ex.getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProductCacheInvalidator_evictsOnlyAfterCommit() {
+
+        ProductCache cache = new ProductCache(productRepository, 100);
+        when(productRepository.findAllById(anyIterable())).thenReturn(
+                List.of(new Product(1L, "Laptop", 999.99, null)),
+                List.of(new Product(1L, "Laptop", 899.99, null)));
+        ObjectProvider<ProductCache> caches = mock(ObjectProvider.class);
+        ObjectProvider<CatalogChangeLog> changeLogs = mock(ObjectProvider.class);
+        when(caches.getObject()).thenReturn(cache);
+        when(changeLogs.getObject()).thenReturn(changeLog);
+        ProductCacheInvalidator invalidator = new ProductCacheInvalidator(caches, changeLogs);
+        cache.resolve(List.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            invalidator.onProductChanged(new Product(1L, "Laptop", 899.99, null));
+            // Before commit the old price is still the committed one; evicting now would let it be re-cached
+            assertEquals(999.99, cache.resolve(List.of(1L)).get(1L).getPrice(), 0.001);
+            verify(productRepository, times(1)).findAllById(anyIterable());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(899.99, cache.resolve(List.of(1L)).get(1L).getPrice(), 0.001);
+        verify(changeLog).recordProduct(1L, false);
+    }
+
+
+    //COUPON CATALOG
+
+    @Test
+    void testCouponCatalog_putAndRemove() {
+
+        CouponCatalog catalog = new CouponCatalog(couponRepository, Clock.systemDefaultZone());
+
+        Coupon active = new Coupon();
+        active.setId(1L);
+        active.setName("ACTIVE");
+        active.setType(CouponType.CART_WISE);
+        active.setIsActive(true);
+
+        Coupon inactive = new Coupon();
+        inactive.setId(2L);
+        inactive.setName("INACTIVE");
+        inactive.setType(CouponType.CART_WISE);
+        inactive.setIsActive(false);
+
+        catalog.put(active, 1L);
+        catalog.put(inactive, 2L);
+
+        assertTrue(catalog.find(1L).isPresent());
+        assertTrue(catalog.find(2L).isPresent());
+        assertEquals(1, catalog.snapshot().getLiveCoupons().size());
+        assertEquals(1L, catalog.snapshot().getLiveCoupons().get(0).getId());
+
+        long version = catalog.snapshot().getVersion();
+        catalog.remove(1L, 3L);
+
+        assertFalse(catalog.find(1L).isPresent());
+        assertTrue(catalog.snapshot().getLiveCoupons().isEmpty());
+        assertTrue(catalog.snapshot().getVersion() > version);
+        verifyNoInteractions(couponRepository);
+    }
+
+    @Test
+    void testCouponCatalog_polledReadsNeverOverwriteNewerLocalChanges() {
+
+        CouponCatalog catalog = new CouponCatalog(couponRepository, Clock.systemDefaultZone());
+        Coupon local = new Coupon();
+        local.setId(1L);
+        local.setName("LOCAL");
+        local.setType(CouponType.CART_WISE);
+        local.setIsActive(true);
+        Coupon polled = new Coupon();
+        polled.setId(1L);
+        polled.setName("POLLED");
+        polled.setType(CouponType.CART_WISE);
+        polled.setIsActive(true);
+
+        // The poller read coupon 1 for remote change 5; a local update committed as version 6 before it applied
+        catalog.put(local, 6L);
+        catalog.apply(List.of(CouponSnapshot.from(polled)), List.of(), Map.of(1L, 5L));
+        assertEquals("LOCAL", catalog.find(1L).orElseThrow().getName());
+
+        catalog.apply(List.of(CouponSnapshot.from(polled)), List.of(), Map.of(1L, 7L));
+        assertEquals("POLLED", catalog.find(1L).orElseThrow().getName());
+
+        // A stale read must not resurrect a coupon removed locally either
+        catalog.remove(1L, 8L);
+        catalog.apply(List.of(CouponSnapshot.from(polled)), List.of(), Map.of(1L, 7L));
+        assertFalse(catalog.find(1L).isPresent());
+    }
+
+
+    @Test
+    void testCouponCatalog_timelineMovesCouponsInAndOut() {
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(start.minusDays(1).toInstant(ZoneOffset.UTC));
+
+        Coupon coupon = new Coupon();
+        coupon.setId(1L);
+        coupon.setType(CouponType.CART_WISE);
+        coupon.setIsActive(true);
+        coupon.setStartDate(start);
+        coupon.setEndDate(start.plusDays(7));
+
+        CouponCatalog catalog = new CouponCatalog(couponRepository, clock);
+        catalog.put(coupon, 1L);
+        assertFalse(catalog.snapshot().isLive(1L));
+
+        when(clock.instant()).thenReturn(start.toInstant(ZoneOffset.UTC));
+        assertTrue(catalog.snapshot().isLive(1L));
+        assertEquals(1, catalog.snapshot().getLiveCoupons().size());
+
+        when(clock.instant()).thenReturn(start.plusDays(7).toInstant(ZoneOffset.UTC));
+        assertTrue(catalog.snapshot().isLive(1L)); // still valid on the end date itself
+
+        when(clock.instant()).thenReturn(start.plusDays(7).plusSeconds(1).toInstant(ZoneOffset.UTC));
+        assertFalse(catalog.snapshot().isLive(1L));
+        assertTrue(catalog.snapshot().getLiveCoupons().isEmpty());
+        assertTrue(catalog.find(1L).isPresent());
+    }
+
+    @Test
+    void testValidityTimeline_repatchingDoesNotGrowQueue() {
+
+        LocalDateTime now = LocalDateTime.of(2030, 1, 1, 0, 0);
+        ValidityTimeline timeline = new ValidityTimeline();
+        CouponSnapshot latest = null;
+        for (int i = 0; i < 10_000; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setId(1L);
+            coupon.setType(CouponType.CART_WISE);
+            coupon.setIsActive(true);
+            coupon.setStartDate(now.plusDays(1 + i % 30));
+            coupon.setEndDate(now.plusDays(60));
+            latest = CouponSnapshot.from(coupon);
+            timeline.schedule(latest, now);
+        }
+        assertTrue(timeline.size() <= 200, "queue holds " + timeline.size());
+        assertEquals(latest.getStartDate(), timeline.nextTransition());
+
+        // Only the current version's boundaries come due
+        List<CouponSnapshot> due = timeline.pollDue(now.plusDays(90));
+        assertEquals(2, due.size());
+        assertSame(latest, due.get(0));
+        assertSame(latest, due.get(1));
+        assertNull(timeline.nextTransition());
+        assertEquals(0, timeline.size());
+
+        timeline.schedule(latest, now);
+        timeline.unschedule(1L);
+        assertNull(timeline.nextTransition());
+        assertTrue(timeline.pollDue(now.plusDays(90)).isEmpty());
+    }
+
+    @Test
+    void testCatalogChangePoller_appliesRemoteDeltasAndReloadsOnGap() {
+
+        CatalogChangeRepository changeRepository = mock(CatalogChangeRepository.class);
+        CatalogChangePoller poller = new CatalogChangePoller(changeLog, changeRepository, couponRepository,
+                couponCatalog, productCache, mock(PlatformTransactionManager.class), Clock.systemUTC(),
+                Duration.ofSeconds(1), Duration.ofDays(7));
+        when(changeLog.nodeId()).thenReturn("this-node");
+        when(changeLog.currentVersion()).thenReturn(10L, 20L);
+        poller.captureVersion();
+
+        Coupon updated = new Coupon();
+        updated.setId(5L);
+        updated.setName("NEW-NAME");
+        LocalDateTime now = LocalDateTime.now();
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(eq(10L), any())).thenReturn(List.of(
+                new CatalogChange(11L, ChangedEntity.COUPON, 5L, false, "other-node", now),
+                new CatalogChange(12L, ChangedEntity.COUPON, 6L, false, "other-node", now),
+                new CatalogChange(13L, ChangedEntity.PRODUCT, 1L, false, "other-node", now),
+                new CatalogChange(14L, ChangedEntity.COUPON, 6L, true, "other-node", now),
+                new CatalogChange(15L, ChangedEntity.COUPON, 7L, false, "this-node", now)));
+        when(couponRepository.findAllById(List.of(5L))).thenReturn(List.of(updated));
+
+        poller.poll();
+
+        // Coupon 6's tombstone supersedes its update; coupon 7 was applied locally by this node already
+        verify(couponCatalog).apply(List.of(CouponSnapshot.from(updated)), List.of(6L), Map.of(5L, 11L, 6L, 14L));
+        verify(productCache).invalidate(1L);
+        assertEquals(15L, poller.appliedVersion());
+
+        // Entries 16-17 were pruned before this node read them: full reload, resuming from the current version
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(eq(15L), any())).thenReturn(List.of(
+                new CatalogChange(18L, ChangedEntity.COUPON, 8L, false, "other-node", now)));
+        poller.poll();
+
+        verify(couponCatalog).reload();
+        verify(productCache).invalidateAll();
+        assertEquals(20L, poller.appliedVersion());
+    }
+
+    @Test
+    void testCatalogFile_roundTripsSnapshotsAndRejectsCorruption(@TempDir Path dir) throws IOException {
+
+        Coupon bxgy = new Coupon();
+        bxgy.setId(3L);
+        bxgy.setName("B2G1");
+        bxgy.setCode("B2G1-ÉTÉ");
+        bxgy.setType(CouponType.BXGY);
+        bxgy.setDiscountType(DiscountType.PERCENTAGE);
+        bxgy.setDiscountValue(100.0);
+        bxgy.setBuyQuantity(2);
+        bxgy.setGetQuantity(1);
+        bxgy.setBuyProductIds(List.of(1L, 2L));
+        bxgy.setFreeProductIds(List.of(3L));
+        bxgy.setMaxRedemptions(10_000);
+        bxgy.setStartDate(LocalDateTime.of(2026, 1, 1, 0, 0, 0, 123_000_000));
+        List<CouponSnapshot> coupons = List.of(cappedCoupon(1L, null, 2), CouponSnapshot.from(bxgy));
+        List<ProductSnapshot> products = List.of(new ProductSnapshot(1L, "Laptop", 999.99),
+                new ProductSnapshot(2L, null, null));
+
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogFile.write(file, 42L, coupons, products);
+        CatalogFile.Contents contents = CatalogFile.read(file);
+
+        assertEquals(42L, contents.changeLogVersion());
+        assertEquals(coupons, contents.coupons());
+        assertEquals(products, contents.products());
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(file, bytes);
+        IOException error = assertThrows(IOException.class, () -> CatalogFile.read(file));
+        assertTrue(error.getMessage().startsWith("Checksum mismatch"));
+    }
+
+    @Test
+    void testCatalogFileStore_restoresOnlyAFileThatMatchesTheDatabase(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("catalog.snapshot");
+        List<CouponSnapshot> coupons = List.of(
+                percentageCoupon(3L, CouponType.CART_WISE, 10.0), percentageCoupon(9L, CouponType.CART_WISE, 5.0));
+        CatalogFile.write(file, 42L, coupons, List.of());
+        when(changeLog.currentVersion()).thenReturn(42L);
+        when(couponRepository.count()).thenReturn(0L, 2L);
+        when(couponRepository.findMaxId()).thenReturn(null, 9L);
+        when(couponCatalog.snapshot()).thenReturn(CatalogSnapshot.empty());
+
+        // Same change-log version, but the coupons were deleted behind the application: the file must not bring
+        // them back, nor serve ids the sequence will hand out again
+        CatalogFileStore wiped = new CatalogFileStore(couponCatalog, productCache, couponRepository, productRepository,
+                changeLog, mock(CatalogChangePoller.class), file.toString(), Duration.ofHours(1));
+        wiped.start();
+        verify(couponCatalog, never()).restore(any());
+        wiped.shutdown();
+
+        CatalogFile.write(file, 42L, coupons, List.of());
+        CatalogFileStore matching = new CatalogFileStore(couponCatalog, productCache, couponRepository,
+                productRepository, changeLog, mock(CatalogChangePoller.class), file.toString(), Duration.ofHours(1));
+        matching.start();
+        verify(couponCatalog).restore(coupons);
+        matching.shutdown();
+    }
+
+    @Test
+    void testCatalogSnapshot_candidatesFromProductIndex() {
+
+        Coupon cartWise = new Coupon();
+        cartWise.setId(1L);
+        cartWise.setType(CouponType.CART_WISE);
+        cartWise.setIsActive(true);
+
+        Coupon productWise = new Coupon();
+        productWise.setId(2L);
+        productWise.setType(CouponType.PRODUCT_WISE);
+        productWise.setApplicableProductIds(List.of(100L, 101L));
+        productWise.setIsActive(true);
+
+        Coupon bxgy = new Coupon();
+        bxgy.setId(3L);
+        bxgy.setType(CouponType.BXGY);
+        bxgy.setBuyProductIds(List.of(200L));
+        bxgy.setFreeProductIds(List.of(101L));
+        bxgy.setIsActive(true);
+
+        CatalogSnapshot snapshot = CatalogSnapshot.of(1L, List.of(
+                CouponSnapshot.from(bxgy), CouponSnapshot.from(productWise), CouponSnapshot.from(cartWise)),
+                Set.of(1L, 2L, 3L));
+
+        assertEquals(List.of(1L), ids(snapshot.candidatesFor(List.of(999L), 0L)));
+        assertEquals(List.of(1L, 2L), ids(snapshot.candidatesFor(List.of(100L), 0L)));
+        assertEquals(List.of(1L, 2L, 3L), ids(snapshot.candidatesFor(List.of(100L, 101L, 200L), 0L)));
+    }
+
+    @Test
+    void testThresholdIndex_returnsOnlyQualifyingTiers() {
+
+        List<CouponSnapshot> tiers = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setId(i);
+            coupon.setType(CouponType.CART_WISE);
+            coupon.setMinimumCartTotal(i * 100.0);
+            tiers.add(CouponSnapshot.from(coupon));
+        }
+        Collections.reverse(tiers);
+        ThresholdIndex index = ThresholdIndex.of(tiers);
+
+        assertTrue(index.qualifying(5_000L).isEmpty());
+        assertTrue(index.qualifying(10_000L).isEmpty()); // minimum must be strictly exceeded
+        assertEquals(List.of(1L), ids(index.qualifying(10_001L)));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.qualifying(35_000L)));
+        assertEquals(5, index.qualifying(1_000_000L).size());
+    }
+
+    @Test
+    void testProductIdSet_denseAndSparseMembership() {
+
+        ProductIdSet dense = ProductIdSet.of(List.of(105L, 100L, 101L, 102L, 103L, 104L, 100L));
+        assertEquals(6, dense.size());
+        for (long id = 100; id <= 105; id++) {
+            assertTrue(dense.contains(id));
+        }
+        assertFalse(dense.contains(99L));
+        assertFalse(dense.contains(106L));
+        assertFalse(dense.contains(-1L));
+
+        ProductIdSet sparse = ProductIdSet.of(List.of(5_000_000_000L, 7L, 1_000_000L));
+        assertTrue(sparse.contains(7L));
+        assertTrue(sparse.contains(1_000_000L));
+        assertTrue(sparse.contains(5_000_000_000L));
+        assertFalse(sparse.contains(8L));
+
+        assertTrue(ProductIdSet.empty().isEmpty());
+        assertEquals(ProductIdSet.of(List.of(7L, 1_000_000L, 5_000_000_000L)), sparse);
+    }
+
+    private static List<Long> ids(List<CouponSnapshot> coupons) {
+        return coupons.stream().map(CouponSnapshot::getId).toList();
+    }
+
+
     // BXGY STRATEGY
 
 
     @Test
     void testBxGyStrategy_applyDoesNotCrash() {
 
-        ProductRepository productRepositoryMock = mock(ProductRepository.class);
-        BxGyStrategy strat = new BxGyStrategy(productRepositoryMock);
+        BxGyStrategy strat = new BxGyStrategy();
 
         Cart cart = new Cart();
         cart.setItems(List.of());
@@ -302,8 +1472,41 @@ public class CombinedTest {
         coupon.setBuyProductIds(List.of());
         coupon.setFreeProductIds(List.of());
 
-        strat.applyDiscount(coupon, cart);
+        strat.applyDiscount(CouponSnapshot.from(coupon), cart);
         assertTrue(true);
     }
 
+    @Test
+    void testBxGyStrategy_usesPricesCarriedByCart() {
+
+        BxGyStrategy strat = new BxGyStrategy();
+
+        CartItem buy = new CartItem();
+        buy.setProduct(new Product(1L, "Laptop", 1000.0, null));
+        buy.setQuantity(4);
+        buy.setOriginalPrice(1000.0);
+
+        CartItem free = new CartItem();
+        free.setProduct(new Product(2L, "Mouse", 30.0, null));
+        free.setQuantity(3);
+        free.setOriginalPrice(30.0);
+
+        Cart cart = new Cart();
+        cart.setItems(List.of(buy, free));
+        cart.setTotalAmount(4090.0);
+
+        Coupon coupon = new Coupon();
+        coupon.setType(CouponType.BXGY);
+        coupon.setBuyQuantity(2);
+        coupon.setGetQuantity(1);
+        coupon.setBuyProductIds(List.of(1L));
+        coupon.setFreeProductIds(List.of(2L));
+
+        assertEquals(60.0, strat.calculateDiscount(CouponSnapshot.from(coupon), cart), 0.001);
+
+        strat.applyDiscount(CouponSnapshot.from(coupon), cart);
+        assertEquals(60.0, free.getDiscountAmount(), 0.001);
+        assertEquals(0.0, buy.getDiscountAmount(), 0.001);
+    }
+
 }
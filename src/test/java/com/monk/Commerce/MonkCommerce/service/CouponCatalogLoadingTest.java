@@ -0,0 +1,64 @@
+package com.monk.Commerce.MonkCommerce.service;
+
+import com.monk.Commerce.MonkCommerce.config.ClockConfig;
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponCatalog;
+import com.monk.Commerce.MonkCommerce.service.catalog.CouponSnapshot;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CouponCatalog.class, ClockConfig.class})
+class CouponCatalogLoadingTest {
+
+    @Autowired private CouponRepository couponRepository;
+    @Autowired private CouponCatalog couponCatalog;
+    @Autowired private EntityManager entityManager;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testReload_loadsProductListsInConstantNumberOfQueries() {
+
+        for (long i = 1; i <= 50; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setName("BXGY" + i);
+            coupon.setType(CouponType.BXGY);
+            coupon.setDiscountType(DiscountType.PERCENTAGE);
+            coupon.setDiscountValue(100.0);
+            coupon.setBuyQuantity(2);
+            coupon.setGetQuantity(1);
+            coupon.setApplicableProductIds(List.of(i));
+            coupon.setBuyProductIds(List.of(i, i + 1));
+            coupon.setFreeProductIds(List.of(i + 2));
+            couponRepository.save(coupon);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        couponCatalog.reload();
+
+        // One query for the coupons plus one per product-ID collection, independent of the catalog size
+        assertEquals(4, statistics.getPrepareStatementCount());
+        List<CouponSnapshot> live = couponCatalog.snapshot().getLiveCoupons();
+        assertEquals(50, live.size());
+        CouponSnapshot last = live.get(49);
+        assertEquals(List.of(last.getApplicableProductIds().get(0) + 2), last.getFreeProductIds());
+        assertEquals(2, last.getBuyProductIds().size());
+    }
+}
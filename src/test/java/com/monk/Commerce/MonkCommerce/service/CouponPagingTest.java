@@ -0,0 +1,71 @@
+package com.monk.Commerce.MonkCommerce.service;
+
+import com.monk.Commerce.MonkCommerce.model.Coupon;
+import com.monk.Commerce.MonkCommerce.model.CouponType;
+import com.monk.Commerce.MonkCommerce.model.DiscountType;
+import com.monk.Commerce.MonkCommerce.repository.CouponRepository;
+import com.monk.Commerce.MonkCommerce.service.persistence.CouponPageReader;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(CouponPageReader.class)
+class CouponPagingTest {
+
+    @Autowired private CouponRepository couponRepository;
+    @Autowired private CouponPageReader couponPageReader;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    void testRead_walksFilteredKeysetPagesWithDetachedIdLists() {
+
+        List<Long> expected = new ArrayList<>();
+        for (long i = 1; i <= 30; i++) {
+            Coupon coupon = new Coupon();
+            coupon.setName("P" + i);
+            coupon.setType(i % 3 == 0 ? CouponType.CART_WISE : CouponType.PRODUCT_WISE);
+            coupon.setDiscountType(DiscountType.PERCENTAGE);
+            coupon.setDiscountValue(10.0);
+            coupon.setMinimumCartTotal(100.0);
+            coupon.setApplicableProductIds(List.of(i));
+            coupon.setIsActive(i % 5 != 0);
+            Long id = couponRepository.save(coupon).getId();
+            if (coupon.getType() == CouponType.PRODUCT_WISE && coupon.getIsActive()) {
+                expected.add(id);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> seen = new ArrayList<>();
+        long after = 0L;
+        List<Coupon> page;
+        do {
+            // Copy the lists while the page's session is open, as the service mapping does
+            page = couponPageReader.read(CouponType.PRODUCT_WISE, true, after, 7, coupon -> {
+                Coupon copy = new Coupon();
+                copy.setId(coupon.getId());
+                copy.setApplicableProductIds(List.copyOf(coupon.getApplicableProductIds()));
+                return copy;
+            });
+            assertTrue(page.size() <= 7);
+            for (Coupon coupon : page) {
+                seen.add(coupon.getId());
+                assertEquals(1, coupon.getApplicableProductIds().size());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 7);
+
+        assertEquals(expected, seen);
+    }
+}
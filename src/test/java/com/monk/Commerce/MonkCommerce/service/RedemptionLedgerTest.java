@@ -0,0 +1,35 @@
+package com.monk.Commerce.MonkCommerce.service;
+
+import com.monk.Commerce.MonkCommerce.service.redemption.RedemptionLedger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(RedemptionLedger.class)
+class RedemptionLedgerTest {
+
+    @Autowired private RedemptionLedger ledger;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    // Runs inside the test's transaction, as it does inside applyCoupon's
+    @Test
+    void testRecordCustomerRedemption_countsInCallerTransactionAndSurvivesDuplicateInsert() {
+
+        assertTrue(ledger.recordCustomerRedemption(3L, "alice", 2));
+        // At the limit the increment misses, so the first-insert path hits the existing key and rolls back to its savepoint
+        assertFalse(ledger.recordCustomerRedemption(3L, "alice", 1));
+        assertTrue(ledger.recordCustomerRedemption(3L, "alice", 2));
+        assertTrue(ledger.recordCustomerRedemption(3L, "bob", 1));
+        assertFalse(ledger.recordCustomerRedemption(3L, "carol", 0));
+
+        // The duplicate key did not doom the surrounding transaction
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from coupon_customer_redemptions", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select redemptions from coupon_customer_redemptions where customer_id = 'alice'", Integer.class));
+    }
+}